@@ -0,0 +1,36 @@
+package searchengine;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Page texts the benchmarks run on: each argument is a text file or a directory of {@code *.txt} files,
+ * one page per file (for example {@code page.text} exported row by row).
+ */
+public final class BenchmarkTexts {
+
+    private BenchmarkTexts() {
+    }
+
+    public static List<String> read(List<String> paths) throws IOException {
+        List<String> texts = new ArrayList<>();
+        for (String path : paths) {
+            Path file = Path.of(path);
+            if (Files.isDirectory(file)) {
+                try (Stream<Path> files = Files.list(file)) {
+                    for (Path page : files.filter(page -> page.toString().endsWith(".txt")).sorted().toList()) {
+                        texts.add(Files.readString(page, StandardCharsets.UTF_8));
+                    }
+                }
+            } else {
+                texts.add(Files.readString(file, StandardCharsets.UTF_8));
+            }
+        }
+        return texts;
+    }
+}
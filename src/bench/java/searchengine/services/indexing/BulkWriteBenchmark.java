@@ -0,0 +1,117 @@
+package searchengine.services.indexing;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import searchengine.Application;
+import searchengine.BenchmarkTexts;
+import searchengine.model.PageTable;
+import searchengine.model.SiteTable;
+import searchengine.model.Status;
+import searchengine.properties.PipelineSettings;
+import searchengine.repository.IndexRepository;
+import searchengine.repository.PageRepository;
+import searchengine.repository.SiteRepository;
+import searchengine.services.morphology.LemmaFinder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rows per second of the indexing write path with batched JDBC ({@code bulk-writes: true}) against the
+ * repositories ({@code bulk-writes: false}): the same pages go through an {@link IndexingPipeline} once per mode
+ * and round, each time into a new site of the database configured in {@code application.yaml}:
+ * {@code mvn -Pbench test-compile exec:exec -Dbench.class=searchengine.services.indexing.BulkWriteBenchmark
+ * -Dbench.args="<text files or directories...> [--pages=N] [--rounds=N] [--spring.datasource.url=...]"}.
+ * The sites are left in place, so point it at a scratch database.
+ */
+public class BulkWriteBenchmark {
+    private final ConfigurableApplicationContext context;
+    private final JdbcTemplate jdbcTemplate;
+    private final SiteRepository siteRepository;
+
+    private BulkWriteBenchmark(ConfigurableApplicationContext context) {
+        this.context = context;
+        this.jdbcTemplate = context.getBean(JdbcTemplate.class);
+        this.siteRepository = context.getBean(SiteRepository.class);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int pages = 2000;
+        int rounds = 2;
+        List<String> paths = new ArrayList<>();
+        List<String> springArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--pages=")) {
+                pages = Integer.parseInt(arg.substring("--pages=".length()));
+            } else if (arg.startsWith("--rounds=")) {
+                rounds = Integer.parseInt(arg.substring("--rounds=".length()));
+            } else if (arg.startsWith("--")) {
+                springArgs.add(arg);
+            } else {
+                paths.add(arg);
+            }
+        }
+        List<String> texts = BenchmarkTexts.read(paths);
+        if (texts.isEmpty()) {
+            System.err.println("Usage: BulkWriteBenchmark <text files or directories...> [--pages=N] [--rounds=N]");
+            return;
+        }
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .run(springArgs.toArray(String[]::new))) {
+            BulkWriteBenchmark benchmark = new BulkWriteBenchmark(context);
+            for (int round = 1; round <= rounds; round++) {
+                for (boolean bulkWrites : new boolean[]{true, false}) {
+                    benchmark.run(round, bulkWrites, texts, pages);
+                }
+            }
+        }
+    }
+
+    private void run(int round, boolean bulkWrites, List<String> texts, int pages) throws Exception {
+        PipelineSettings settings = context.getBean(PipelineSettings.class);
+        settings.setBulkWrites(bulkWrites);
+        SiteTable siteTable = new SiteTable();
+        siteTable.setUrl("http://bench-" + System.nanoTime() + ".local");
+        siteTable.setName("bench");
+        siteTable.setStatus(Status.INDEXING);
+        siteTable.setStatusTime(LocalDateTime.now());
+        siteRepository.save(siteTable);
+
+        IndexingPipeline pipeline = new IndexingPipeline(siteTable, context.getBean(PageRepository.class),
+                context.getBean(IndexRepository.class), context.getBean(LemmaFinder.class),
+                context.getBean(BulkWriter.class), context.getBean(PageContentStore.class), settings, () -> {
+        });
+        long started = System.nanoTime();
+        pipeline.start();
+        for (int i = 0; i < pages; i++) {
+            String text = texts.get(i % texts.size());
+            PageTable pageTable = new PageTable();
+            pageTable.setSiteId(siteTable);
+            pageTable.setPath("/page/" + i);
+            pageTable.setCode(200);
+            pageTable.setTitle("Page " + i);
+            pageTable.setText(text);
+            pageTable.setContent("<html><body><p>" + text + "</p></body></html>");
+            pipeline.accept(pageTable);
+        }
+        pipeline.finish();
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        long pageRows = count("SELECT COUNT(*) FROM page WHERE site_id = ?", siteTable.getId());
+        long lemmaRows = count("SELECT COUNT(*) FROM lemma WHERE site_id = ?", siteTable.getId());
+        long indexRows = count("SELECT COUNT(*) FROM index_table i JOIN page p ON p.id = i.page_id "
+                + "WHERE p.site_id = ?", siteTable.getId());
+        long rows = pageRows + lemmaRows + indexRows;
+        System.out.printf("round %d, %s writes: %d pages, %d lemmas, %d index rows in %.1f s, %.0f rows/s%n",
+                round, bulkWrites ? "bulk" : "repository", pageRows, lemmaRows, indexRows, seconds, rows / seconds);
+    }
+
+    private long count(String sql, int siteId) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class, siteId);
+        return count == null ? 0 : count;
+    }
+}
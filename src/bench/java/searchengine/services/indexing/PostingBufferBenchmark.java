@@ -0,0 +1,106 @@
+package searchengine.services.indexing;
+
+import searchengine.BenchmarkTexts;
+import searchengine.model.IndexTable;
+import searchengine.model.LemmaTable;
+import searchengine.model.PageTable;
+import searchengine.properties.MorphologySettings;
+import searchengine.services.morphology.LemmaFinderImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.util.*;
+
+/**
+ * Measures the heap a lemma worker's postings retain before they are written: the former per-posting objects
+ * (a record with the lemma and its boxed positions, then an {@link IndexTable} per row) against
+ * {@link PostingBuffer}:
+ * {@code mvn -Pbench test-compile exec:exec -Dbench.class=searchengine.services.indexing.PostingBufferBenchmark
+ * -Dbench.args="<text files or directories...>"}. Each file is one page.
+ */
+public class PostingBufferBenchmark {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        List<String> texts = BenchmarkTexts.read(List.of(args));
+        if (texts.isEmpty()) {
+            System.err.println("Usage: PostingBufferBenchmark <text files or directories...>");
+            return;
+        }
+        LemmaFinderImpl lemmaFinder = new LemmaFinderImpl(new MorphologySettings());
+        texts.forEach(lemmaFinder::collectLemmas);
+
+        long baseline = usedHeap();
+        Map<String, Integer> frequencies = new HashMap<>();
+        List<LegacyPosting> legacyPostings = new ArrayList<>();
+        for (int i = 0; i < texts.size(); i++) {
+            PageTable pageTable = new PageTable();
+            pageTable.setId(i + 1);
+            lemmaFinder.collectLemmaPositions(texts.get(i)).forEach((lemma, positions) -> {
+                frequencies.merge(lemma, 1, Integer::sum);
+                legacyPostings.add(new LegacyPosting(pageTable, lemma, positions));
+            });
+        }
+        Map<String, LemmaTable> lemmaTables = new HashMap<>();
+        List<IndexTable> indexTables = new ArrayList<>(legacyPostings.size());
+        for (LegacyPosting posting : legacyPostings) {
+            IndexTable indexTable = new IndexTable();
+            indexTable.setLemma(lemmaTables.computeIfAbsent(posting.lemma(), lemma -> {
+                LemmaTable lemmaTable = new LemmaTable();
+                lemmaTable.setLemma(lemma);
+                return lemmaTable;
+            }));
+            indexTable.setPage(posting.page());
+            indexTable.setRank(posting.positions().size());
+            indexTable.setPositions(encode(posting.positions()));
+            indexTables.add(indexTable);
+        }
+        long legacyBytes = usedHeap() - baseline;
+        int count = legacyPostings.size();
+        Reference.reachabilityFence(frequencies);
+        Reference.reachabilityFence(indexTables);
+        print("records + entities", legacyBytes, count);
+
+        frequencies.clear();
+        lemmaTables.clear();
+        legacyPostings.clear();
+        indexTables.clear();
+        baseline = usedHeap();
+        PostingBuffer postings = new PostingBuffer();
+        for (int i = 0; i < texts.size(); i++) {
+            postings.addPage(i + 1, texts.get(i), lemmaFinder);
+        }
+        long bufferBytes = usedHeap() - baseline;
+        print("PostingBuffer", bufferBytes, postings.size());
+        System.out.printf("PostingBuffer columns: %.1f bytes per posting%n",
+                (double) postings.getBufferedBytes() / Math.max(postings.size(), 1));
+        Reference.reachabilityFence(postings);
+    }
+
+    private static void print(String name, long bytes, int postings) {
+        System.out.printf("%s: %d postings, %d KB retained, %.1f bytes per posting%n",
+                name, postings, bytes / 1024, (double) bytes / Math.max(postings, 1));
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static byte[] encode(List<Integer> positions) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(positions.size() + 4);
+        int previous = 0;
+        for (int position : positions) {
+            Varint.write(out, position - previous);
+            previous = position;
+        }
+        return out.toByteArray();
+    }
+
+    private record LegacyPosting(PageTable page, String lemma, List<Integer> positions) {
+    }
+}
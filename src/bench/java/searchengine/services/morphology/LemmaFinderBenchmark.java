@@ -0,0 +1,99 @@
+package searchengine.services.morphology;
+
+import searchengine.BenchmarkTexts;
+import searchengine.properties.MorphologySettings;
+
+import com.sun.management.ThreadMXBean;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToIntFunction;
+
+/**
+ * Measures tokenization (the former regex + split against {@link Tokenizer}: speed and bytes allocated
+ * per token) and lemmatization throughput with and without the word form cache:
+ * {@code mvn -Pbench test-compile exec:exec -Dbench.class=searchengine.services.morphology.LemmaFinderBenchmark
+ * -Dbench.args="<text files or directories...> [--rounds=N]"}.
+ * Texts should be page text as stored in {@code page.text}; the first round of each run warms up the JIT.
+ */
+public class LemmaFinderBenchmark {
+    private static final String LEGACY_REGEX = "\\p{Punct}|[0-9]|№|©|◄|«|»|—|-|@|…";
+
+    public static void main(String[] args) throws IOException {
+        int rounds = 5;
+        List<String> paths = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--rounds=")) {
+                rounds = Integer.parseInt(arg.substring("--rounds=".length()));
+            } else {
+                paths.add(arg);
+            }
+        }
+        List<String> texts = BenchmarkTexts.read(paths);
+        if (texts.isEmpty()) {
+            System.err.println("Usage: LemmaFinderBenchmark <text files or directories...> [--rounds=N]");
+            return;
+        }
+        benchmarkTokenizer("regex + split", texts, rounds, text -> text.toLowerCase(Locale.ROOT)
+                .replaceAll(LEGACY_REGEX, " ")
+                .toLowerCase(Locale.ROOT)
+                .split("\\s+").length);
+        benchmarkTokenizer("Tokenizer", texts, rounds, text -> {
+            int[] count = {0};
+            Tokenizer.tokenize(text, (buffer, length, position) -> count[0]++);
+            return count[0];
+        });
+
+        long tokens = texts.stream().mapToLong(text -> {
+            int[] count = {0};
+            Tokenizer.tokenize(text, (buffer, length, position) -> count[0]++);
+            return count[0];
+        }).sum();
+        for (int cacheSize : new int[]{0, new MorphologySettings().getCacheSize()}) {
+            MorphologySettings settings = new MorphologySettings();
+            settings.setCacheSize(cacheSize);
+            LemmaFinderImpl lemmaFinder = new LemmaFinderImpl(settings);
+            double best = 0;
+            for (int round = 0; round <= rounds; round++) {
+                long started = System.nanoTime();
+                texts.forEach(lemmaFinder::collectLemmaPositions);
+                double perSecond = tokens / ((System.nanoTime() - started) / 1e9);
+                if (round > 0) {
+                    best = Math.max(best, perSecond);
+                }
+            }
+            LemmaCache.CacheStats stats = lemmaFinder.getCacheStats();
+            System.out.printf("cache-size %d: %.0f tokens/s, hit rate %.3f, evictions %d%n",
+                    cacheSize, best, stats.getHitRate(), stats.evictions());
+        }
+    }
+
+    private static void benchmarkTokenizer(String name, List<String> texts, int rounds,
+                                           ToIntFunction<String> tokenizer) {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        double best = 0;
+        double bytesPerToken = 0;
+        double megabytesPerSecond = 0;
+        for (int round = 0; round <= rounds; round++) {
+            long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+            long started = System.nanoTime();
+            long tokens = 0;
+            for (String text : texts) {
+                tokens += tokenizer.applyAsInt(text);
+            }
+            double seconds = (System.nanoTime() - started) / 1e9;
+            long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            if (round > 0 && tokens / seconds > best) {
+                best = tokens / seconds;
+                bytesPerToken = (double) allocated / Math.max(tokens, 1);
+                megabytesPerSecond = allocated / seconds / (1024 * 1024);
+            }
+        }
+        System.out.printf("%s: %.0f tokens/s, %.1f bytes allocated per token, %.1f MB/s allocation rate%n",
+                name, best, bytesPerToken, megabytesPerSecond);
+    }
+}
@@ -0,0 +1,120 @@
+package searchengine.services.parsing;
+
+import com.sun.net.httpserver.HttpServer;
+import searchengine.BenchmarkTexts;
+import searchengine.properties.CrawlerSettings;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pages per second of the two fetch engines against a local stub server, which answers every request after
+ * a fixed delay standing in for network latency. {@link JsoupPageFetcher} blocks, so it is driven by
+ * {@code workers} threads as in the crawler; {@link AsyncHttpPageFetcher} keeps up to {@code max-in-flight}
+ * requests open from a single caller:
+ * {@code mvn -Pbench test-compile exec:exec -Dbench.class=searchengine.services.parsing.FetchBenchmark
+ * -Dbench.args="<text files or directories...> [--pages=N] [--latency=ms] [--rounds=N]"}.
+ */
+public class FetchBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int pages = 2000;
+        int latency = 50;
+        int rounds = 3;
+        List<String> paths = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--pages=")) {
+                pages = Integer.parseInt(arg.substring("--pages=".length()));
+            } else if (arg.startsWith("--latency=")) {
+                latency = Integer.parseInt(arg.substring("--latency=".length()));
+            } else if (arg.startsWith("--rounds=")) {
+                rounds = Integer.parseInt(arg.substring("--rounds=".length()));
+            } else {
+                paths.add(arg);
+            }
+        }
+        List<String> texts = BenchmarkTexts.read(paths);
+        if (texts.isEmpty()) {
+            System.err.println("Usage: FetchBenchmark <text files or directories...> [--pages=N] [--latency=ms]"
+                    + " [--rounds=N]");
+            return;
+        }
+        HttpServer server = startServer(texts, latency);
+        String base = "http://127.0.0.1:" + server.getAddress().getPort();
+        CrawlerSettings settings = new CrawlerSettings();
+        JsoupPageFetcher jsoup = new JsoupPageFetcher(settings);
+        AsyncHttpPageFetcher async = new AsyncHttpPageFetcher(settings);
+        ExecutorService workers = Executors.newFixedThreadPool(settings.getWorkers());
+        try {
+            for (int round = 1; round <= rounds; round++) {
+                run(round, "jsoup, " + settings.getWorkers() + " workers", jsoup, workers,
+                        settings.getWorkers(), base, pages);
+                run(round, "async, " + settings.getMaxInFlight() + " in flight", async, Runnable::run,
+                        settings.getMaxInFlight(), base, pages);
+            }
+        } finally {
+            workers.shutdownNow();
+            async.shutdown();
+            server.stop(0);
+        }
+    }
+
+    private static HttpServer startServer(List<String> texts, int latency) throws Exception {
+        List<byte[]> bodies = texts.stream()
+                .map(text -> ("<html><head><title>Page</title></head><body><p>" + text + "</p></body></html>")
+                        .getBytes(StandardCharsets.UTF_8))
+                .toList();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String path = exchange.getRequestURI().getPath();
+            byte[] body = bodies.get(Math.floorMod(path.hashCode(), bodies.size()));
+            exchange.getResponseHeaders().set("Content-Type", "text/html; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static void run(int round, String name, PageFetcher fetcher, Executor callers,
+                            int inFlight, String base, int pages) throws InterruptedException {
+        Semaphore permits = new Semaphore(inFlight);
+        CountDownLatch done = new CountDownLatch(pages);
+        AtomicInteger failed = new AtomicInteger();
+        long started = System.nanoTime();
+        for (int i = 0; i < pages; i++) {
+            permits.acquire();
+            String url = base + "/page/" + i;
+            callers.execute(() -> fetcher.fetch(url, null).whenComplete((result, error) -> {
+                if (error != null || result.getDocument() == null) {
+                    failed.incrementAndGet();
+                }
+                permits.release();
+                done.countDown();
+            }));
+        }
+        done.await();
+        double seconds = (System.nanoTime() - started) / 1e9;
+        System.out.printf("round %d, %s: %d pages in %.1f s, %.0f pages/s, %d failed%n",
+                round, name, pages, seconds, pages / seconds, failed.get());
+    }
+}
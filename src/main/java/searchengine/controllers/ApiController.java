@@ -12,6 +12,8 @@ import searchengine.services.IndexingService;
 import searchengine.services.SearchService;
 import searchengine.services.StatisticsService;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api")
 @RequiredArgsConstructor
@@ -28,8 +30,9 @@ public class ApiController {
     }
 
     @GetMapping("/startIndexing")
-    public ResponseEntity<IndexingResponse> startIndexing() {
-        IndexingResponse response = indexingService.startIndexing();
+    public ResponseEntity<IndexingResponse> startIndexing(
+            @RequestParam(defaultValue = "false") boolean resume) {
+        IndexingResponse response = indexingService.startIndexing(resume);
         if (response.isResult()) {
             return ResponseEntity.ok(response);
         } else {
@@ -53,15 +56,12 @@ public class ApiController {
 
     @PostMapping("/indexPage")
     public ResponseEntity<IndexingResponse> indexPage(@RequestParam String url) {
-        IndexingResponse response = indexingService.startIndexingUrl(url);
-        if (response.isResult()) {
-            return ResponseEntity.ok(response);
-        } else {
-            return ResponseEntity
-                    .status(HttpStatus.OK)
-                    .body(new IndexingResponse(false, "Данная страница находится за пределами сайтов, " +
-                            "указанных в конфигурационном файле"));
-        }
+        return ResponseEntity.ok(indexingService.startIndexingUrl(url));
+    }
+
+    @PostMapping("/indexPages")
+    public ResponseEntity<IndexingResponse> indexPages(@RequestParam("url") List<String> urls) {
+        return ResponseEntity.ok(indexingService.startIndexingUrls(urls));
     }
 
     @GetMapping("/search")
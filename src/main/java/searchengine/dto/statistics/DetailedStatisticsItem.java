@@ -13,4 +13,6 @@ public class DetailedStatisticsItem {
     private String error;
     private int pages;
     private int lemmas;
+    private long fetches;
+    private int refetchedUrls;
 }
@@ -8,4 +8,9 @@ public class TotalStatistics {
     private int pages;
     private int lemmas;
     private boolean indexing;
+    private double contentCompressionRatio;
+    private double contentLoadMillis;
+    private long lemmaCacheHits;
+    private long lemmaCacheMisses;
+    private long lemmaCacheEvictions;
 }
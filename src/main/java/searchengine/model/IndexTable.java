@@ -13,7 +13,9 @@ import javax.persistence.*;
 public class IndexTable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "index_table_ids")
+    @TableGenerator(name = "index_table_ids", table = "id_block", pkColumnName = "name", valueColumnName = "next_id",
+            pkColumnValue = "index_table", allocationSize = 1000)
     @Column(nullable = false)
     private int id;
 
@@ -27,4 +29,11 @@ public class IndexTable {
 
     @Column(name = "index_rank", nullable = false)
     private float rank;
+
+    /**
+     * Word positions of the lemma on the page, see {@code Positions}; {@code null} on rows indexed before
+     * positions were stored.
+     */
+    @Column(columnDefinition = "BLOB")
+    private byte[] positions;
 }
\ No newline at end of file
@@ -7,15 +7,19 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "lemma")
+@Table(name = "lemma", uniqueConstraints = @UniqueConstraint(name = LemmaTable.SITE_LEMMA_KEY,
+        columnNames = {"site_id", "lemma"}))
 @Getter
 @Setter
 @AllArgsConstructor
 @NoArgsConstructor
 public class LemmaTable {
+    public static final String SITE_LEMMA_KEY = "uk_lemma_site_lemma";
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "lemma_ids")
+    @TableGenerator(name = "lemma_ids", table = "id_block", pkColumnName = "name", valueColumnName = "next_id",
+            pkColumnValue = "lemma", allocationSize = 500)
     @Column(nullable = false)
     private int id;
 
@@ -23,12 +27,12 @@ public class LemmaTable {
     @JoinColumn(name = "site_id", nullable = false)
     private SiteTable siteId;
 
-    @Column(columnDefinition = "VARCHAR(255)", nullable = false)
+    @Column(columnDefinition = "VARCHAR(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin", nullable = false)
     private String lemma;
 
     @Column(nullable = false)
     private int frequency;
 
-    @OneToMany(mappedBy = "lemma", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToMany(mappedBy = "lemma", fetch = FetchType.LAZY)
     private List<IndexTable> index = new ArrayList<>();
 }
@@ -15,7 +15,9 @@ import java.util.List;
 public class PageTable {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "page_ids")
+    @TableGenerator(name = "page_ids", table = "id_block", pkColumnName = "name", valueColumnName = "next_id",
+            pkColumnValue = "page", allocationSize = 100)
     @Column(nullable = false)
     private int id;
 
@@ -29,9 +31,27 @@ public class PageTable {
     @Column(nullable = false)
     private int code;
 
-    @Column(columnDefinition = "MEDIUMTEXT", nullable = false)
+    /**
+     * Raw HTML, kept compressed in {@code page_content} by {@code PageContentStore}; set only on pages being stored.
+     */
+    @Transient
     private String content;
 
-    @OneToMany(mappedBy = "page", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    @Column(columnDefinition = "VARCHAR(512)")
+    private String title;
+
+    @Column(columnDefinition = "MEDIUMTEXT")
+    private String text;
+
+    @Column(columnDefinition = "VARCHAR(255)")
+    private String etag;
+
+    @Column(columnDefinition = "VARCHAR(64)")
+    private String lastModified;
+
+    @Column(columnDefinition = "CHAR(64)")
+    private String contentHash;
+
+    @OneToMany(mappedBy = "page", fetch = FetchType.LAZY)
     private List<IndexTable> index = new ArrayList<>();
 }
\ No newline at end of file
@@ -4,8 +4,6 @@ import lombok.*;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
 
 @Entity
 @Table(name = "site")
@@ -36,9 +34,16 @@ public class SiteTable {
     @Column(columnDefinition = "VARCHAR(255)", nullable = false)
     private String name;
 
-    @OneToMany(mappedBy = "siteId", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
-    private List<PageTable> pages = new ArrayList<>();
+    @Column(name = "fetched_pages", columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int fetchedPages;
 
-    @OneToMany(mappedBy = "siteId", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
-    private List<LemmaTable> lemmas = new ArrayList<>();
+    @Column(name = "queued_urls", columnDefinition = "INT NOT NULL DEFAULT 0")
+    private int queuedUrls;
+
+    /**
+     * Whether this generation of the site's index is the one searched; a full re-index builds
+     * a second, non-live row for the same URL and swaps the flags when it is complete.
+     */
+    @Column(name = "live", columnDefinition = "BOOLEAN NOT NULL DEFAULT TRUE")
+    private boolean live = true;
 }
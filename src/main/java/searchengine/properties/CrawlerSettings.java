@@ -0,0 +1,39 @@
+package searchengine.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "indexing-settings.crawler")
+public class CrawlerSettings {
+    private int workers = 16;
+    private long hostDelay = 300;
+    private int hostConcurrency = 2;
+    private boolean incremental = true;
+    private String fetcher = "jsoup";
+    private int maxInFlight = 256;
+    private int networkThreads = 4;
+    private int parseThreads;
+    private int timeout = 30000;
+    private long checkpointInterval = 60000;
+    private long heartbeatInterval = 5000;
+    private boolean robots = true;
+    private boolean sitemap = true;
+    private int sitemapMaxUrls = 50000;
+    private int sitemapMaxBodySize = 50 * 1024 * 1024;
+    private int maxBodySize = 5 * 1024 * 1024;
+    private List<String> excludedExtensions = new ArrayList<>(List.of(
+            "jpg", "jpeg", "png", "gif", "webp", "svg", "ico", "bmp", "tif", "tiff",
+            "pdf", "doc", "docx", "xls", "xlsx", "ppt", "pptx", "odt", "rtf",
+            "zip", "rar", "7z", "gz", "tar",
+            "mp3", "wav", "ogg", "mp4", "avi", "mov", "wmv", "webm", "flv",
+            "exe", "msi", "dmg", "apk", "iso", "css", "js", "json", "woff", "woff2", "ttf"));
+    private String userAgent = "Mozilla/5.0 (Windows NT 10.0; Win64; x64)" +
+            "AppleWebKit/537.36 (HTML, like Gecko)" +
+            "Chrome/58.0.3029.110 Safari/537.3";
+}
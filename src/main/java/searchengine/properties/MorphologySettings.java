@@ -0,0 +1,13 @@
+package searchengine.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "indexing-settings.morphology")
+public class MorphologySettings {
+    private int cacheSize = 100000;
+    private String dictionary = "";
+}
@@ -0,0 +1,18 @@
+package searchengine.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "indexing-settings.pipeline")
+public class PipelineSettings {
+    private int queueCapacity = 256;
+    private int lemmaFlushPages = 50;
+    private boolean bulkWrites = true;
+    private int batchSize = 1000;
+    private int lemmaWorkers;
+    private int contentCompressionLevel = 6;
+    private long searchRefreshInterval = 10000;
+}
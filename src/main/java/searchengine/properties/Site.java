@@ -6,4 +6,6 @@ import lombok.Data;
 public class Site {
     private String url;
     private String name;
-}
\ No newline at end of file
+    private Long hostDelay;
+    private Integer hostConcurrency;
+}
@@ -0,0 +1,16 @@
+package searchengine.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import searchengine.model.CrawlCheckpoint;
+import searchengine.model.SiteTable;
+
+@Repository
+public interface CrawlCheckpointRepository extends JpaRepository<CrawlCheckpoint, Integer> {
+
+    CrawlCheckpoint findBySiteId(SiteTable siteTable);
+
+    @Transactional
+    void deleteBySiteId(SiteTable siteTable);
+}
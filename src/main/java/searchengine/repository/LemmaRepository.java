@@ -6,7 +6,6 @@ import searchengine.model.LemmaTable;
 import searchengine.model.SiteTable;
 
 import java.util.List;
-import java.util.Set;
 
 @Repository
 
@@ -14,6 +13,6 @@ public interface LemmaRepository extends JpaRepository<LemmaTable, Integer> {
 
     int countBySiteId(SiteTable siteTable);
 
-   List<LemmaTable> findByLemmaInAndFrequencyLessThanOrderByFrequencyAsc(Set<String> lemmas, int frequency);
+    List<LemmaTable> findAllBySiteId(SiteTable siteTable);
 
 }
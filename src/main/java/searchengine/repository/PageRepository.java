@@ -1,18 +1,25 @@
 package searchengine.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import searchengine.model.PageTable;
 import searchengine.model.SiteTable;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface PageRepository extends JpaRepository<PageTable, Integer> {
 
-    PageTable findByPath(String url);
+    @Query("select p.id from PageTable p where p.siteId = :site and p.path in :paths")
+    List<Integer> findIdsBySiteIdAndPathIn(@Param("site") SiteTable siteTable,
+                                           @Param("paths") Collection<String> paths);
 
     int countBySiteId(SiteTable siteTable);
 
     List<PageTable> findAllBySiteId(SiteTable siteTable);
+
+    List<PageValidators> findValidatorsBySiteId(SiteTable siteTable);
 }
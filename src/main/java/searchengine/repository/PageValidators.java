@@ -0,0 +1,13 @@
+package searchengine.repository;
+
+public interface PageValidators {
+    int getId();
+
+    String getPath();
+
+    String getEtag();
+
+    String getLastModified();
+
+    String getContentHash();
+}
@@ -1,15 +1,29 @@
 package searchengine.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import searchengine.model.SiteTable;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Repository
 @Transactional
 public interface SiteRepository extends JpaRepository<SiteTable, Integer> {
 
-    SiteTable findByUrl(String url);
+    SiteTable findByUrlAndLiveTrue(String url);
+
+    List<SiteTable> findAllByUrlAndLiveFalse(String url);
+
+    List<SiteTable> findAllByLiveTrue();
 
-    void deleteByUrl(String url);
+    @Modifying
+    @Query("update SiteTable s set s.statusTime = :statusTime, s.fetchedPages = :fetchedPages, "
+            + "s.queuedUrls = :queuedUrls where s.id = :id")
+    int updateProgress(@Param("id") int id, @Param("statusTime") LocalDateTime statusTime,
+                       @Param("fetchedPages") int fetchedPages, @Param("queuedUrls") int queuedUrls);
 }
\ No newline at end of file
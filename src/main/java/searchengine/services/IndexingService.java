@@ -2,11 +2,15 @@ package searchengine.services;
 
 import searchengine.dto.indexing.IndexingResponse;
 
+import java.util.List;
+
 public interface IndexingService {
 
-    IndexingResponse startIndexing();
+    IndexingResponse startIndexing(boolean resume);
 
     IndexingResponse stopIndexing();
 
     IndexingResponse startIndexingUrl(String url);
+
+    IndexingResponse startIndexingUrls(List<String> urls);
 }
@@ -3,14 +3,30 @@ package searchengine.services;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import searchengine.model.*;
+import searchengine.properties.CrawlerSettings;
+import searchengine.properties.PipelineSettings;
+import searchengine.services.indexing.BulkWriter;
+import searchengine.services.indexing.CrawlCheckpointService;
+import searchengine.services.indexing.IndexingPipeline;
+import searchengine.services.indexing.InvertedIndex;
+import searchengine.services.indexing.PageContentStore;
+import searchengine.services.indexing.PostingBuffer;
+import searchengine.services.indexing.PostingStore;
+import searchengine.services.indexing.SiteGenerations;
+import searchengine.services.parsing.CrawlFrontier;
+import searchengine.services.parsing.CrawlScheduler;
 import searchengine.services.parsing.Link;
+import searchengine.services.parsing.PageFetcher;
 import searchengine.services.parsing.ParseHtml;
+import searchengine.services.parsing.RobotsRules;
+import searchengine.services.parsing.SiteDiscovery;
+import searchengine.services.parsing.SiteHeartbeat;
 import searchengine.properties.Site;
 import searchengine.properties.SitesList;
 import searchengine.dto.indexing.IndexingResponse;
 import searchengine.repository.IndexRepository;
-import searchengine.repository.LemmaRepository;
 import searchengine.repository.PageRepository;
 import searchengine.repository.SiteRepository;
 import searchengine.services.morphology.LemmaFinderImpl;
@@ -20,8 +36,11 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
@@ -31,54 +50,78 @@ public class IndexingServiceImpl implements IndexingService {
     private final SitesList sites;
     private final PageRepository pageRepository;
     private final SiteRepository siteRepository;
-    private final LemmaRepository lemmaRepository;
     private final IndexRepository indexRepository;
     private final LemmaFinderImpl lemmaFinder;
+    private final CrawlScheduler crawlScheduler;
+    private final CrawlerSettings crawlerSettings;
+    private final PageFetcher pageFetcher;
+    private final PipelineSettings pipelineSettings;
+    private final BulkWriter bulkWriter;
+    private final PageContentStore contentStore;
+    private final CrawlCheckpointService checkpointService;
+    private final SiteDiscovery siteDiscovery;
+    private final SiteHeartbeat siteHeartbeat;
+    private final SiteGenerations siteGenerations;
+    private final PostingStore postingStore;
+    private final InvertedIndex invertedIndex;
+    private final TransactionTemplate transactionTemplate;
     private final List<Thread> indexingThreads;
-    private ForkJoinPool forkJoinPool;
     private final Object lock = new Object();
     private final String HTTP_PREFIX = "https://";
     private final String SLASH = "/";
 
     @Override
-    public IndexingResponse startIndexing() {
+    public IndexingResponse startIndexing(boolean resume) {
         synchronized (lock) {
-            if (forkJoinPool != null && !forkJoinPool.isTerminated()) {
+            if (crawlScheduler.isRunning()) {
                 return new IndexingResponse(false, "Индексирование уже выполняется.");
             }
-            initializeThreadPool();
+            crawlScheduler.start();
         }
-        new Thread(this::startIndexingInternal).start();
+        new Thread(() -> startIndexingInternal(resume)).start();
         return new IndexingResponse(true);
     }
 
     @Override
     public IndexingResponse startIndexingUrl(String url) {
-        synchronized (lock) {
-            String domain = HTTP_PREFIX + urlToParentUrl(url) + SLASH;
-            SiteTable existingSite = siteRepository.findByUrl(domain);
-            PageTable existingPage = pageRepository.findByPath(url);
-
-            if (forkJoinPool != null && !forkJoinPool.isTerminated()) {
-                return new IndexingResponse(false, "Индексирование уже выполняется.");
-            }
+        return startIndexingUrls(List.of(url));
+    }
 
+    @Override
+    public IndexingResponse startIndexingUrls(List<String> urls) {
+        if (urls.isEmpty()) {
+            return new IndexingResponse(false, "Не указаны страницы для индексации.");
+        }
+        for (String url : urls) {
             if (!isValidUrl(url)) {
                 log.error("Invalid URL: " + url);
-                return new IndexingResponse(false, "Неверная ссылка.");
+                return new IndexingResponse(false, "Данная страница находится за пределами сайтов, "
+                        + "указанных в конфигурационном файле");
             }
-
-            if (existingPage != null) {
-                deleteRelatedData(existingPage);
+            if (!siteDiscovery.getRobots(HTTP_PREFIX + urlToParentUrl(url) + SLASH).isAllowed(url)) {
+                return new IndexingResponse(false, "Страница исключена из обхода: " + url);
+            }
+        }
+        synchronized (lock) {
+            if (crawlScheduler.isRunning()) {
+                return new IndexingResponse(false, "Индексирование уже выполняется.");
             }
 
-            if (existingSite == null) {
-                existingSite = createSiteInTableForSinglePage(url);
+            Map<String, SiteTable> sitesByDomain = new HashMap<>();
+            Map<SiteTable, List<String>> urlsBySite = new LinkedHashMap<>();
+            for (String url : urls) {
+                SiteTable siteTable = sitesByDomain.computeIfAbsent(HTTP_PREFIX + urlToParentUrl(url) + SLASH,
+                        domain -> {
+                            SiteTable existingSite = siteRepository.findByUrlAndLiveTrue(domain);
+                            return existingSite != null
+                                    ? existingSite
+                                    : siteRepository.save(createSiteInTableForSinglePage(url));
+                        });
+                urlsBySite.computeIfAbsent(siteTable, site -> new ArrayList<>()).add(url);
             }
 
-            initializeThreadPool();
-            SiteTable finalExistingSite = existingSite;
-            new Thread(() -> indexSinglePage(finalExistingSite, url)).start();
+            crawlScheduler.start();
+            new Thread(() -> indexPagesInternal(urlsBySite)).start();
             return new IndexingResponse(true);
         }
     }
@@ -87,7 +130,7 @@ public class IndexingServiceImpl implements IndexingService {
     public IndexingResponse stopIndexing() {
         try {
             indexingThreads.forEach(Thread::interrupt);
-            forkJoinPool.shutdownNow();
+            crawlScheduler.stop();
             return new IndexingResponse(true);
         } catch (Exception e) {
             log.error(e.getMessage());
@@ -95,97 +138,285 @@ public class IndexingServiceImpl implements IndexingService {
         }
     }
 
-    private void indexSite(SiteTable siteTable) {
-        ParseHtml parseHtml = new ParseHtml(siteTable.getUrl(), siteTable, siteRepository, pageRepository);
-        forkJoinPool.invoke(parseHtml);
-        Set<Link> links = new CopyOnWriteArraySet<>(parseHtml.getLinks());
-        Set<PageTable> pageTables = links.stream()
-                .filter(link -> link.getPath().startsWith(siteTable.getUrl()))
-                .map(link -> createPageFromLink(link, siteTable))
-                .collect(Collectors.toSet());
-        processAndSavePages(pageTables, siteTable);
+    private void indexSite(SiteTable siteTable, boolean resume) {
+        CrawlFrontier.Snapshot checkpoint = resume ? checkpointService.load(siteTable) : null;
+        if (checkpoint == null) {
+            checkpointService.delete(siteTable);
+        }
+        IndexingPipeline pipeline = new IndexingPipeline(siteTable, pageRepository, indexRepository,
+                lemmaFinder, bulkWriter, contentStore, pipelineSettings, () -> publish(siteTable, List.of()));
+        pipeline.start();
+        RobotsRules robots = siteDiscovery.loadRobots(siteTable.getUrl());
+        CrawlFrontier frontier = openFrontier(siteTable, robots);
+        ScheduledFuture<?> checkpointing = checkpointService.schedule(siteTable, frontier);
+        List<Integer> rebuilt = new ArrayList<>();
+        try {
+            Consumer<Link> sink = link -> {
+                if (link.getPath().startsWith(siteTable.getUrl()) && link.isModified()) {
+                    pipeline.accept(createPageFromLink(link, siteTable));
+                }
+            };
+            if (checkpoint == null) {
+                crawl(siteTable, frontier, sink);
+            } else {
+                resumeCrawl(checkpoint, siteTable, frontier, sink);
+            }
+            if (siteTable.getStatus() != Status.FAILED) {
+                frontier.getUnvisitedKnownPages().forEach(page -> pipeline.remove(page.getId()));
+            }
+            pipeline.finish();
+            rebuilt.addAll(postingStore.rebuildMissing(siteTable));
+            checkpointing.cancel(false);
+            checkpointService.delete(siteTable);
+            siteTable.setStatus(Status.INDEXED);
+            siteRepository.save(siteTable);
+            if (!siteTable.isLive()) {
+                siteGenerations.promote(siteTable);
+            }
+        } catch (CancellationException exception) {
+            checkpointing.cancel(false);
+            stopSite(siteTable, frontier, pipeline, exception.getMessage());
+        } catch (InterruptedException e) {
+            pipeline.abort();
+            Thread.currentThread().interrupt();
+        } catch (Exception exception) {
+            pipeline.abort();
+            siteTable.setStatus(Status.FAILED);
+            siteTable.setLastError(exception.getMessage());
+            siteRepository.save(siteTable);
+        } finally {
+            checkpointing.cancel(false);
+            publish(siteTable, rebuilt);
+        }
     }
 
-    private void indexSinglePage(SiteTable siteTable, String url) {
+    /**
+     * Re-encodes the postings a job invalidated and hands the site's current state to search. Runs from the
+     * pipeline while a crawl goes on and on every exit of a job, failed or stopped ones included, since their
+     * pages may already have been withdrawn; a generation that is not live is left alone.
+     */
+    private void publish(SiteTable siteTable, List<Integer> rebuilt) {
+        if (!siteTable.isLive()) {
+            return;
+        }
         try {
-            ParseHtml parseHtml = new ParseHtml(url, siteTable, siteRepository, pageRepository);
-            forkJoinPool.invoke(parseHtml);
-            parseHtml.getLinks().stream()
-                    .filter(link -> link.getPath().equals(url))
-                    .findFirst()
-                    .map(link -> createPageFromLink(link, siteTable))
-                    .ifPresent(pageTable -> processAndSavePages(Set.of(pageTable), siteTable));
+            List<Integer> changed = new ArrayList<>(rebuilt);
+            changed.addAll(postingStore.rebuildMissing(siteTable));
+            invertedIndex.refresh(siteTable, changed);
         } catch (Exception exception) {
-            log.info(exception.getMessage());
+            log.error("Search index of {} not refreshed: {}", siteTable.getUrl(), exception.getMessage());
+        }
+    }
+
+    /**
+     * The crawl was stopped: remember where it was and let the pipeline index what it already holds,
+     * so a resumed run does not have to fetch those pages again.
+     */
+    private void stopSite(SiteTable siteTable, CrawlFrontier frontier, IndexingPipeline pipeline, String message) {
+        try {
+            checkpointService.save(siteTable, frontier);
+            pipeline.finish();
+        } catch (InterruptedException e) {
+            pipeline.abort();
+            Thread.currentThread().interrupt();
+        } catch (Exception exception) {
+            pipeline.abort();
+            log.error(exception.getMessage());
+        }
+        siteTable.setStatus(Status.FAILED);
+        siteTable.setLastError(message);
+        siteRepository.save(siteTable);
+    }
+
+    private void indexPagesInternal(Map<SiteTable, List<String>> urlsBySite) {
+        try {
+            urlsBySite.forEach(this::indexPages);
         } finally {
             cleanupAfterParsing();
         }
     }
 
-    private void saveSitesInRepository() {
-        List<Site> siteList = sites.getSites();
-        for (Site site : siteList) {
-            checkRepeatInBase(site);
-            SiteTable siteTable = createSite(site);
-            siteRepository.save(siteTable);
+    /**
+     * Fetches the pages of one site through a single frontier, then swaps the stored versions for them
+     * in one transaction, see {@link #replacePages}.
+     */
+    private void indexPages(SiteTable siteTable, List<String> urls) {
+        List<Integer> rebuilt = new ArrayList<>();
+        try {
+            Queue<Link> links = new ConcurrentLinkedQueue<>();
+            Queue<String> failures = new ConcurrentLinkedQueue<>();
+            BiConsumer<String, Throwable> failed = (url, cause) -> failures.add(url + " (" + cause.getMessage() + ")");
+            CrawlFrontier frontier = openFrontier(siteTable, siteDiscovery.getRobots(siteTable.getUrl()));
+            for (String url : urls) {
+                if (!frontier.submit(url, newTask(url, frontier, siteTable, links::add, failed, false))) {
+                    log.info("Страница исключена из обхода: " + url);
+                }
+            }
+            try {
+                frontier.await();
+            } finally {
+                siteHeartbeat.flush(siteTable, frontier);
+            }
+            List<PageTable> pages = links.stream()
+                    .map(link -> createPageFromLink(link, siteTable))
+                    .toList();
+            transactionTemplate.executeWithoutResult(status -> replacePages(siteTable, pages));
+            rebuilt.addAll(postingStore.rebuildMissing(siteTable));
+            if (failures.isEmpty()) {
+                siteTable.setStatus(Status.INDEXED);
+                siteTable.setLastError(null);
+                siteTable.setStatusTime(LocalDateTime.now());
+                siteRepository.save(siteTable);
+            } else {
+                failSite(siteTable, "Не удалось загрузить страницы: " + String.join(", ", failures));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failSite(siteTable, "Индексация остановлена пользователем");
+        } catch (Exception exception) {
+            log.error("Pages of {} not indexed: {}", siteTable.getUrl(), exception.getMessage());
+            failSite(siteTable, exception.getMessage());
+        } finally {
+            publish(siteTable, rebuilt);
         }
     }
 
-    private SiteTable createSite(Site site) {
-        SiteTable siteTable = new SiteTable();
-        siteTable.setUrl(site.getUrl());
-        siteTable.setName(site.getName());
+    private void failSite(SiteTable siteTable, String message) {
+        siteTable.setStatus(Status.FAILED);
+        siteTable.setLastError(message);
         siteTable.setStatusTime(LocalDateTime.now());
-        siteTable.setStatus(Status.INDEXING);
-        return siteTable;
+        siteRepository.save(siteTable);
     }
 
-    private void setLemmaAndIndexPage(PageTable pageTable) {
-        Map<String, LemmaTable> lemmaTableMap = new HashMap<>();
-        List<IndexTable> indexTables = new ArrayList<>();
-        processLemmasAndIndexes(pageTable, lemmaTableMap, indexTables);
-        lemmaRepository.saveAll(lemmaTableMap.values());
-        indexRepository.saveAll(indexTables);
+    private CrawlFrontier openFrontier(SiteTable siteTable, RobotsRules robots) {
+        Site site = findSiteSettings(siteTable.getUrl());
+        long hostDelay = site != null && site.getHostDelay() != null
+                ? site.getHostDelay()
+                : crawlerSettings.getHostDelay();
+        if (robots.getCrawlDelayMillis() != null) {
+            hostDelay = Math.max(hostDelay, robots.getCrawlDelayMillis());
+        }
+        CrawlFrontier frontier = crawlScheduler.openFrontier(siteTable.getUrl(), hostDelay,
+                site != null ? site.getHostConcurrency() : null);
+        frontier.setRobotsRules(robots);
+        return frontier;
+    }
+
+    private void crawl(SiteTable siteTable, CrawlFrontier frontier, Consumer<Link> sink)
+            throws InterruptedException {
+        if (crawlerSettings.isIncremental()) {
+            frontier.addKnownPages(pageRepository.findValidatorsBySiteId(siteTable));
+        }
+        String url = siteTable.getUrl();
+        frontier.submit(url, newTask(url, frontier, siteTable, sink, siteFailures(siteTable), true));
+        siteDiscovery.loadSitemapUrls(url, siteDiscovery.getRobots(url)).forEach(seed ->
+                frontier.submit(seed, newTask(seed, frontier, siteTable, sink, siteFailures(siteTable), true)));
+        try {
+            frontier.await();
+        } finally {
+            siteHeartbeat.flush(siteTable, frontier);
+        }
     }
 
-    private void setLemmaAndIndexSite(SiteTable siteTable) {
-        Map<String, LemmaTable> lemmaTableMap = new ConcurrentHashMap<>();
-        List<IndexTable> indexTables = new CopyOnWriteArrayList<>();
-        pageRepository.findAllBySiteId(siteTable)
-                .stream()
-                .filter(pageTable -> pageTable.getCode() == 200)
-                .forEach(pageTable -> processLemmasAndIndexes(pageTable, lemmaTableMap, indexTables));
-        lemmaRepository.saveAll(lemmaTableMap.values());
-        indexRepository.saveAll(indexTables);
+    private ParseHtml newTask(String url, CrawlFrontier frontier, SiteTable siteTable, Consumer<Link> sink,
+                              BiConsumer<String, Throwable> failures, boolean followLinks) {
+        return new ParseHtml(url, pageFetcher, frontier, siteTable, contentStore, siteHeartbeat, sink, failures,
+                followLinks);
+    }
+
+    /**
+     * A page of a site crawl that cannot be fetched marks the whole site as failed with its error.
+     */
+    private BiConsumer<String, Throwable> siteFailures(SiteTable siteTable) {
+        return (url, cause) -> failSite(siteTable, cause.getMessage());
+    }
+
+    private void resumeCrawl(CrawlFrontier.Snapshot checkpoint, SiteTable siteTable, CrawlFrontier frontier,
+                             Consumer<Link> sink) throws InterruptedException {
+        frontier.addKnownPages(pageRepository.findValidatorsBySiteId(siteTable));
+        int queued = frontier.restore(checkpoint.visited(), checkpoint.pending(),
+                url -> newTask(url, frontier, siteTable, sink, siteFailures(siteTable), true));
+        log.info("Resuming crawl of {}: {} URLs queued, {} already done",
+                siteTable.getUrl(), queued, frontier.getVisitedCount() - queued);
+        try {
+            frontier.await();
+        } finally {
+            siteHeartbeat.flush(siteTable, frontier);
+        }
     }
 
-    private void processLemmasAndIndexes(PageTable pageTable
-            , Map<String, LemmaTable> lemmaTableMap
-            , List<IndexTable> indexTables) {
-
-        if (pageTable.getCode() == 200) {
-            String content = pageTable.getContent();
-            Map<String, Integer> lemmas = lemmaFinder.collectLemmas(content);
-
-            lemmas.forEach((key, value) -> {
-                LemmaTable existingLemmaTable = lemmaTableMap.get(key);
-                if (existingLemmaTable == null) {
-                    LemmaTable newLemmaTable = new LemmaTable();
-                    newLemmaTable.setLemma(key);
-                    newLemmaTable.setSiteId(pageTable.getSiteId());
-                    newLemmaTable.setFrequency(1);
-                    lemmaTableMap.put(key, newLemmaTable);
+    private Site findSiteSettings(String url) {
+        return sites.getSites().stream()
+                .filter(site -> site.getUrl().equals(url))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Picks the row each configured site is indexed into: the live one for an incremental or resumed crawl,
+     * otherwise a new non-live generation that replaces the live one only when it is complete
+     * (see {@link SiteGenerations}). Leftover generations that are not resumed are dropped.
+     */
+    private List<SiteTable> saveSitesInRepository(boolean resume) {
+        List<SiteTable> siteTables = new ArrayList<>();
+        for (Site site : sites.getSites()) {
+            SiteTable liveSite = siteRepository.findByUrlAndLiveTrue(site.getUrl());
+            SiteTable siteTable = null;
+            for (SiteTable generation : siteRepository.findAllByUrlAndLiveFalse(site.getUrl())) {
+                if (resume && siteTable == null && checkpointService.load(generation) != null) {
+                    siteTable = generation;
                 } else {
-                    existingLemmaTable.setFrequency(existingLemmaTable.getFrequency() + 1);
+                    siteGenerations.dropLater(generation.getId());
                 }
+            }
+            if (siteTable == null && liveSite != null
+                    && (crawlerSettings.isIncremental() || resume && checkpointService.load(liveSite) != null)) {
+                siteTable = liveSite;
+            }
+            if (siteTable == null) {
+                siteTable = createSite(site);
+                siteTable.setLive(liveSite == null);
+            }
+            siteTable.setName(site.getName());
+            siteTable.setStatus(Status.INDEXING);
+            siteTable.setStatusTime(LocalDateTime.now());
+            siteTable.setLastError(null);
+            siteTables.add(siteRepository.save(siteTable));
+        }
+        return siteTables;
+    }
+
+    private SiteTable createSite(Site site) {
+        SiteTable siteTable = new SiteTable();
+        siteTable.setUrl(site.getUrl());
+        siteTable.setName(site.getName());
+        siteTable.setStatusTime(LocalDateTime.now());
+        siteTable.setStatus(Status.INDEXING);
+        return siteTable;
+    }
 
-                IndexTable indexTable = new IndexTable();
-                indexTable.setLemma(lemmaTableMap.get(key));
-                indexTable.setPage(pageTable);
-                indexTable.setRank(value);
-                indexTables.add(indexTable);
-            });
+    /**
+     * Replaces the stored versions of {@code pages} (matched by path) with set-based statements: the old
+     * postings and rows go in a few deletes, the new pages, lemma increments and index rows in one batch each.
+     */
+    private void replacePages(SiteTable siteTable, List<PageTable> pages) {
+        if (pages.isEmpty()) {
+            return;
         }
+        List<String> paths = pages.stream().map(PageTable::getPath).toList();
+        bulkWriter.deletePages(pageRepository.findIdsBySiteIdAndPathIn(siteTable, paths));
+        bulkWriter.insertPages(pages);
+
+        PostingBuffer postings = new PostingBuffer();
+        for (PageTable pageTable : pages) {
+            if (pageTable.getCode() == 200 && pageTable.getText() != null) {
+                postings.addPage(pageTable.getId(), pageTable.getText(), lemmaFinder);
+            }
+        }
+        Map<String, Integer> deltas = postings.collectFrequencies(lemma -> 0, new HashMap<>());
+        postings.resolve(bulkWriter.upsertLemmas(siteTable, deltas));
+        bulkWriter.insertPostings(postings);
+        bulkWriter.deleteUnusedLemmas(siteTable);
     }
 
     private SiteTable createSiteInTableForSinglePage(String url) {
@@ -200,12 +431,11 @@ public class IndexingServiceImpl implements IndexingService {
         return siteTable;
     }
 
-    private void startIndexingInternal() {
+    private void startIndexingInternal(boolean resume) {
         try {
-            saveSitesInRepository();
             List<Thread> indexingThreads = new ArrayList<>();
-            for (SiteTable siteTable : siteRepository.findAll()) {
-                Thread indexingThread = new Thread(() -> indexSite(siteTable));
+            for (SiteTable siteTable : saveSitesInRepository(resume)) {
+                Thread indexingThread = new Thread(() -> indexSite(siteTable, resume));
                 indexingThreads.add(indexingThread);
                 indexingThread.start();
             }
@@ -220,35 +450,11 @@ public class IndexingServiceImpl implements IndexingService {
             log.error(exception.getMessage());
         } finally {
             synchronized (lock) {
-                forkJoinPool.shutdownNow();
-                forkJoinPool = null;
+                crawlScheduler.stop();
             }
         }
     }
 
-    private void deleteRelatedData(PageTable existingPage) {
-        List<IndexTable> indexTables = indexRepository.findAllByPageId(existingPage.getId());
-
-        List<LemmaTable> lemmaTables = indexTables.stream().map(IndexTable::getLemma).toList();
-
-        indexTables.forEach(indexTable -> indexRepository.deleteByPageId(existingPage.getId()));
-
-        lemmaTables.forEach(lemmaTable -> {
-            Optional<LemmaTable> optionalLemma = lemmaRepository.findById(lemmaTable.getId());
-            optionalLemma.ifPresent(lemma -> {
-                int newFrequency = lemma.getFrequency() - 1;
-                if (newFrequency <= 0) {
-                    lemmaRepository.delete(lemma);
-                } else {
-                    lemma.setFrequency(newFrequency);
-                    lemmaRepository.save(lemma);
-                }
-            });
-        });
-
-        pageRepository.deleteById(existingPage.getId());
-    }
-
     private String urlToParentUrl(String url) {
         URL urlObject;
         try {
@@ -270,51 +476,25 @@ public class IndexingServiceImpl implements IndexingService {
         PageTable pageTable = new PageTable();
         pageTable.setSiteId(siteTable);
         pageTable.setContent(link.getContent());
+        pageTable.setTitle(link.getTitle());
+        pageTable.setText(link.getText());
         pageTable.setPath(absoluteToRelative(siteTable.getUrl(), link.getPath()));
         pageTable.setCode(link.getCode());
+        pageTable.setId(link.getPageId());
+        pageTable.setEtag(link.getEtag());
+        pageTable.setLastModified(link.getLastModified());
+        pageTable.setContentHash(link.getContentHash());
         return pageTable;
     }
 
-    private void processAndSavePages(Set<PageTable> pageTables, SiteTable siteTable) {
-        savePageInRepository(pageTables);
-        if (pageTables.size() > 1) {
-            setLemmaAndIndexSite(siteTable);
-        } else {
-            pageTables.forEach(this::setLemmaAndIndexPage);
-        }
-        siteTable.setStatus(Status.INDEXED);
-        siteRepository.save(siteTable);
-    }
-
-    private void savePageInRepository(Set<PageTable> pageTables) {
-        pageRepository.saveAll(pageTables);
-    }
-
     private void cleanupAfterParsing() {
         synchronized (lock) {
-            if (forkJoinPool != null) {
-                forkJoinPool.shutdownNow();
-                forkJoinPool = null;
-            }
+            crawlScheduler.stop();
         }
     }
 
-    private void deleteSite(SiteTable siteTable) {
-        siteRepository.deleteByUrl(siteTable.getUrl());
-    }
-
     private boolean isValidUrl(String url) {
         List<Site> urlList = sites.getSites();
         return urlList.stream().anyMatch(s -> url.startsWith(s.getUrl()));
     }
-
-    private void initializeThreadPool() {
-        forkJoinPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
-    }
-
-    private void checkRepeatInBase(Site site) {
-        if (siteRepository.findByUrl(site.getUrl()) != null) {
-            deleteSite(siteRepository.findByUrl(site.getUrl()));
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package searchengine.services;
+
+import searchengine.services.indexing.Positions;
+import searchengine.services.morphology.LemmaFinder;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Word positions a page must satisfy for a query on one site: every quoted phrase occurs word for word, and
+ * each pair of neighbouring query words occurs within a maximum distance. Only the words whose lemmas are
+ * searched on that site take part, so a word dropped there as too frequent, or absent, is not checked.
+ */
+final class QueryPositions {
+    private static final Pattern PHRASE = Pattern.compile("\"([^\"]+)\"");
+
+    private final List<List<QueryTerm>> phrases = new ArrayList<>();
+    private final List<QueryTerm> terms;
+
+    /**
+     * @param searched lemmas of the query searched on the site
+     */
+    QueryPositions(String query, Set<String> searched, LemmaFinder lemmaFinder) {
+        Matcher matcher = PHRASE.matcher(query);
+        while (matcher.find()) {
+            List<QueryTerm> phrase = queryTerms(matcher.group(1), searched, lemmaFinder);
+            if (phrase.size() > 1) {
+                phrases.add(phrase);
+            }
+        }
+        this.terms = queryTerms(query, searched, lemmaFinder);
+    }
+
+    /**
+     * @param positions word positions on the page of each searched lemma; a {@code null} value (a page indexed
+     *                  before positions were stored) accepts the page
+     */
+    boolean matches(Map<String, int[]> positions, int maxDistance) {
+        return positions.containsValue(null)
+                || phrases.stream().allMatch(phrase -> containsPhrase(phrase, positions))
+                && withinDistance(terms, positions, maxDistance);
+    }
+
+    /**
+     * Query words that have a searched lemma, keyed by their word offset in {@code text}.
+     */
+    static List<QueryTerm> queryTerms(String text, Set<String> searched, LemmaFinder lemmaFinder) {
+        Map<Integer, Set<String>> lemmasByOffset = new TreeMap<>();
+        lemmaFinder.collectLemmaPositions(text).forEach((lemma, offsets) -> {
+            if (searched.contains(lemma)) {
+                offsets.forEach(offset -> lemmasByOffset.computeIfAbsent(offset, key -> new HashSet<>()).add(lemma));
+            }
+        });
+        List<QueryTerm> terms = new ArrayList<>();
+        lemmasByOffset.forEach((offset, termLemmas) -> terms.add(new QueryTerm(offset, termLemmas)));
+        return terms;
+    }
+
+    static boolean containsPhrase(List<QueryTerm> phrase, Map<String, int[]> positions) {
+        QueryTerm first = phrase.get(0);
+        for (int start : positionsOf(first, positions)) {
+            boolean matches = true;
+            for (int i = 1; i < phrase.size() && matches; i++) {
+                QueryTerm term = phrase.get(i);
+                int expected = start + term.offset() - first.offset();
+                matches = term.lemmas().stream().anyMatch(lemma -> positions.containsKey(lemma)
+                        && Positions.contains(positions.get(lemma), expected));
+            }
+            if (matches) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether the page holds a chain of occurrences, one per term in query order, in which every two
+     * consecutive terms are at most {@code maxDistance} words apart, in either order.
+     */
+    static boolean withinDistance(List<QueryTerm> terms, Map<String, int[]> positions, int maxDistance) {
+        if (terms.size() < 2) {
+            return true;
+        }
+        int[] reached = positionsOf(terms.get(0), positions);
+        for (int term = 1; term < terms.size() && reached.length > 0; term++) {
+            int[] next = positionsOf(terms.get(term), positions);
+            int[] kept = new int[next.length];
+            int count = 0;
+            int previous = 0;
+            for (int position : next) {
+                while (previous < reached.length && reached[previous] < position - maxDistance) {
+                    previous++;
+                }
+                if (previous < reached.length && reached[previous] <= position + maxDistance) {
+                    kept[count++] = position;
+                }
+            }
+            reached = Arrays.copyOf(kept, count);
+        }
+        return reached.length > 0;
+    }
+
+    private static int[] positionsOf(QueryTerm term, Map<String, int[]> positions) {
+        return term.lemmas().stream()
+                .map(positions::get)
+                .filter(Objects::nonNull)
+                .flatMapToInt(Arrays::stream)
+                .distinct()
+                .sorted()
+                .toArray();
+    }
+
+    record QueryTerm(int offset, Set<String> lemmas) {
+    }
+}
@@ -2,35 +2,30 @@ package searchengine.services;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
 import org.springframework.stereotype.Service;
 import searchengine.dto.search.Data;
 import searchengine.dto.search.SearchResponse;
-import searchengine.model.IndexTable;
-import searchengine.model.LemmaTable;
 import searchengine.model.PageTable;
-import searchengine.model.Status;
+import searchengine.services.indexing.InvertedIndex;
+import searchengine.services.indexing.InvertedIndex.Term;
+import searchengine.services.indexing.Positions;
+import searchengine.services.indexing.PostingList;
 import searchengine.services.morphology.LemmaFinder;
-import searchengine.repository.LemmaRepository;
 import searchengine.repository.PageRepository;
-import searchengine.repository.SiteRepository;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 @Service
 @AllArgsConstructor
 @Slf4j
 public class SearchServiceImpl implements SearchService {
     private LemmaFinder lemmaFinder;
-    private final LemmaRepository lemmaRepository;
     private final PageRepository pageRepository;
-    private final SiteRepository siteRepository;
+    private final InvertedIndex invertedIndex;
     private final int FREQUENCY_THRESHOLD = 200;
     private final int MAX_DISTANCE_BETWEEN_WORDS = 5;
 
@@ -42,25 +37,36 @@ public class SearchServiceImpl implements SearchService {
 
     @Override
     public SearchResponse findByLemmaInDatabase(String query, String site, int offset, int limit) {
-        if (!isIndexReady(site)) {
+        if (invertedIndex.isLoaded() && !invertedIndex.hasSite(site)) {
             return new SearchResponse(false, "Индекс для сайта " + site + " не готов или отсутствует");
         }
         return performSearch(query, site, offset, limit);
     }
 
+    /**
+     * Evaluates the query against {@link InvertedIndex} only; pages are read from the database just for
+     * the requested slice of results, to render them.
+     */
     private SearchResponse performSearch(String query, String site, int offset, int limit) {
+        if (invertedIndex.getLoadError() != null) {
+            return new SearchResponse(false, "Поисковый индекс не загружен: " + invertedIndex.getLoadError());
+        }
+        if (!invertedIndex.isLoaded()) {
+            return new SearchResponse(false, "Поисковый индекс загружается, повторите запрос позже");
+        }
         HashMap<String, Integer> lemmaList = lemmaFinder.collectLemmas(query);
 
-        List<LemmaTable> filteredLemmas = filterLemmasByFrequency(lemmaList);
+        List<Term> filteredLemmas = invertedIndex.find(lemmaList.keySet(), site, FREQUENCY_THRESHOLD);
 
-        List<PageTable> relevantPages = findSequentiallyRelevantPages(filteredLemmas, site);
+        Map<Integer, Integer> relevantPages = findSequentiallyRelevantPages(filteredLemmas);
 
-        relevantPages = filterPagesByProximity(relevantPages, query, MAX_DISTANCE_BETWEEN_WORDS);
+        relevantPages = filterPagesByPositions(relevantPages, query, filteredLemmas, MAX_DISTANCE_BETWEEN_WORDS);
 
-        Map<PageTable, Double> relevanceScores = calculateRelevanceScores(relevantPages, filteredLemmas);
+        Map<Integer, Double> relevanceScores = calculateRelevanceScores(relevantPages.keySet(), filteredLemmas);
 
-        List<Map.Entry<PageTable, Double>> sortedPages = new ArrayList<>(relevanceScores.entrySet());
-        sortedPages.sort(Map.Entry.comparingByValue(Comparator.reverseOrder()));
+        List<Map.Entry<Integer, Double>> sortedPages = new ArrayList<>(relevanceScores.entrySet());
+        sortedPages.sort(Map.Entry.<Integer, Double>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
 
         int totalResults = sortedPages.size();
 
@@ -70,21 +76,29 @@ public class SearchServiceImpl implements SearchService {
         int start = Math.min(offset, totalResults);
         int end = Math.min(start + limit, totalResults);
 
-        List<Map.Entry<PageTable, Double>> paginatedPages = sortedPages.subList(start, end);
+        List<Map.Entry<Integer, Double>> paginatedPages = sortedPages.subList(start, end);
+        Map<Integer, PageTable> pages = new HashMap<>();
+        pageRepository.findAllById(paginatedPages.stream().map(Map.Entry::getKey).toList())
+                .forEach(page -> pages.put(page.getId(), page));
 
         List<Data> results = new ArrayList<>();
-        for (Map.Entry<PageTable, Double> entry : paginatedPages) {
-            PageTable page = entry.getKey();
+        for (Map.Entry<Integer, Double> entry : paginatedPages) {
+            PageTable page = pages.get(entry.getKey());
+            InvertedIndex.SiteInfo siteInfo = invertedIndex.getSite(relevantPages.get(entry.getKey()));
+            if (page == null || siteInfo == null) {
+                totalResults--;
+                continue;
+            }
             double relevance = entry.getValue();
-            String snippet = generateSnippet(page.getContent(), query);
+            String snippet = generateSnippet(textOf(page), query);
 
             Data searchData = new Data();
             searchData.setUri(page.getPath());
-            searchData.setTitle(extractTitle(page.getContent()));
+            searchData.setTitle(page.getTitle());
             searchData.setSnippet(snippet);
             searchData.setRelevance(relevance);
-            searchData.setSite(page.getSiteId().getUrl());
-            searchData.setSiteName(page.getSiteId().getName());
+            searchData.setSite(siteInfo.url());
+            searchData.setSiteName(siteInfo.name());
 
             results.add(searchData);
         }
@@ -95,44 +109,36 @@ public class SearchServiceImpl implements SearchService {
         return response;
     }
 
-    private List<PageTable> findSequentiallyRelevantPages(List<LemmaTable> filteredLemmas, String site) {
-        Map<String, Set<Integer>> pagesBySite = new HashMap<>();
+    /**
+     * @return site id of every page on which all of its site's query lemmas occur
+     */
+    private Map<Integer, Integer> findSequentiallyRelevantPages(List<Term> filteredLemmas) {
+        Map<Integer, List<Term>> lemmasBySite = new HashMap<>();
 
-        for (LemmaTable lemma : filteredLemmas) {
-            for (IndexTable index : lemma.getIndex()) {
-                String siteUrl = index.getPage().getSiteId().getUrl().toLowerCase();
-                pagesBySite.computeIfAbsent(siteUrl, k -> new HashSet<>())
-                        .add(index.getPage().getId());
-            }
+        for (Term lemma : filteredLemmas) {
+            lemmasBySite.computeIfAbsent(lemma.siteId(), k -> new ArrayList<>()).add(lemma);
         }
 
-        List<PageTable> finalResults = new ArrayList<>();
+        Map<Integer, Integer> finalResults = new HashMap<>();
 
-        for (String currentSite : pagesBySite.keySet()) {
-            if (site == null || site.equalsIgnoreCase(currentSite)) {
-                List<LemmaTable> lemmasForSite = filterLemmasForSite(filteredLemmas, currentSite);
-                Set<Integer> relevantPageIdsForSite = findPagesForLemmasOnSite(lemmasForSite, currentSite);
-                finalResults.addAll(pageRepository.findAllById(relevantPageIdsForSite));
+        for (Map.Entry<Integer, List<Term>> entry : lemmasBySite.entrySet()) {
+            for (int pageId : findPagesForLemmasOnSite(entry.getValue())) {
+                finalResults.put(pageId, entry.getKey());
             }
         }
 
         return finalResults;
     }
 
-    private Set<Integer> findPagesForLemmasOnSite(List<LemmaTable> lemmas, String siteUrl) {
+    private Set<Integer> findPagesForLemmasOnSite(List<Term> lemmas) {
         Set<Integer> relevantPageIds = new HashSet<>();
 
         for (int i = 0; i < lemmas.size(); i++) {
-            LemmaTable lemma = lemmas.get(i);
-            Set<Integer> currentPageIds = lemma.getIndex().stream()
-                    .filter(index -> index.getPage().getSiteId().getUrl().equalsIgnoreCase(siteUrl))
-                    .map(index -> index.getPage().getId())
-                    .collect(Collectors.toSet());
-
+            PostingList lemmaPostings = lemmas.get(i).postings();
             if (i == 0) {
-                relevantPageIds.addAll(currentPageIds);
+                Arrays.stream(lemmaPostings.getPageIds()).forEach(relevantPageIds::add);
             } else {
-                relevantPageIds.retainAll(currentPageIds);
+                relevantPageIds.removeIf(pageId -> lemmaPostings.indexOf(pageId) < 0);
                 if (relevantPageIds.isEmpty()) {
                     break;
                 }
@@ -142,25 +148,19 @@ public class SearchServiceImpl implements SearchService {
         return relevantPageIds;
     }
 
-    private List<LemmaTable> filterLemmasForSite(List<LemmaTable> lemmas, String siteUrl) {
-        return lemmas.stream()
-                .filter(lemma -> lemma.getIndex().stream().anyMatch(index -> index.getPage().getSiteId().getUrl().equalsIgnoreCase(siteUrl)))
-                .collect(Collectors.toList());
-    }
-
+    private Map<Integer, Double> calculateRelevanceScores(Set<Integer> relevantPages, List<Term> filteredLemmas) {
+        Map<Integer, Double> relevanceScores = new LinkedHashMap<>();
 
-    private Map<PageTable, Double> calculateRelevanceScores(List<PageTable> relevantPages
-            , List<LemmaTable> filteredLemmas) {
-        Map<PageTable, Double> relevanceScores = new LinkedHashMap<>();
-
-        for (PageTable page : relevantPages) {
-            double absoluteRelevance = filteredLemmas.stream()
-                    .flatMap(lemma -> lemma.getIndex().stream())
-                    .filter(index -> index.getPage().equals(page))
-                    .mapToDouble(IndexTable::getRank)
-                    .sum();
+        for (int pageId : relevantPages) {
+            double absoluteRelevance = 0;
+            for (Term lemma : filteredLemmas) {
+                int index = lemma.postings().indexOf(pageId);
+                if (index >= 0) {
+                    absoluteRelevance += lemma.postings().getFrequency(index);
+                }
+            }
 
-            relevanceScores.put(page, absoluteRelevance);
+            relevanceScores.put(pageId, absoluteRelevance);
         }
 
         if (relevanceScores.isEmpty()) {
@@ -175,9 +175,9 @@ public class SearchServiceImpl implements SearchService {
             return relevanceScores;
         }
 
-        Map<PageTable, Double> relativeRelevanceScores = new LinkedHashMap<>();
+        Map<Integer, Double> relativeRelevanceScores = new LinkedHashMap<>();
 
-        for (Map.Entry<PageTable, Double> entry : relevanceScores.entrySet()) {
+        for (Map.Entry<Integer, Double> entry : relevanceScores.entrySet()) {
             double relativeRelevance = entry.getValue() / maxRelevance;
             BigDecimal roundedRelevance = BigDecimal.valueOf(relativeRelevance)
                     .setScale(4, RoundingMode.HALF_UP);
@@ -187,11 +187,8 @@ public class SearchServiceImpl implements SearchService {
         return relativeRelevanceScores;
     }
 
-    private String generateSnippet(String pageContent, String query) {
-        Document doc = Jsoup.parse(pageContent);
-        String textContent = doc.text();
-
-        String[] queryWords = query.split("\\s+");
+    private String generateSnippet(String textContent, String query) {
+        String[] queryWords = query.replace("\"", " ").trim().split("\\s+");
 
         StringBuilder regexBuilder = new StringBuilder();
         for (String word : queryWords) {
@@ -214,52 +211,51 @@ public class SearchServiceImpl implements SearchService {
         return snippet;
     }
 
-    private List<LemmaTable> filterLemmasByFrequency(HashMap<String, Integer> lemmaList) {
-        Set<String> allLemmas = lemmaList.keySet();
-        return lemmaRepository.findByLemmaInAndFrequencyLessThanOrderByFrequencyAsc(allLemmas, FREQUENCY_THRESHOLD);
-    }
-
-    private boolean isIndexReady(String site) {
-        return siteRepository.findByUrl(site).getStatus().equals(Status.INDEXED);
-    }
-
-    private String extractTitle(String htmlContent) {
-        Document doc = Jsoup.parse(htmlContent);
-        return doc.title();
+    private String textOf(PageTable page) {
+        return page.getText() == null ? "" : page.getText();
     }
 
-    private List<PageTable> filterPagesByProximity(List<PageTable> pages, String query, int maxDistance) {
-        List<PageTable> filteredPages = new ArrayList<>();
-        String[] queryWords = query.toLowerCase().split("\\s+");
-
-        for (PageTable page : pages) {
-            String content = Jsoup.parse(page.getContent()).text().toLowerCase();
-            if (areWordsInProximity(content, queryWords, maxDistance)) {
-                filteredPages.add(page);
-            }
+    /**
+     * Keeps the pages whose word positions satisfy the query, see {@link QueryPositions}; each page is checked
+     * against the lemmas searched on its own site.
+     */
+    private Map<Integer, Integer> filterPagesByPositions(Map<Integer, Integer> pages, String query, List<Term> lemmas,
+                                                         int maxDistance) {
+        if (pages.isEmpty()) {
+            return pages;
         }
-
+        Map<Integer, Set<String>> searchedBySite = new HashMap<>();
+        for (Term lemma : lemmas) {
+            searchedBySite.computeIfAbsent(lemma.siteId(), key -> new HashSet<>()).add(lemma.lemma());
+        }
+        Map<Integer, QueryPositions> querySites = new HashMap<>();
+        searchedBySite.forEach((siteId, searched) ->
+                querySites.put(siteId, new QueryPositions(query, searched, lemmaFinder)));
+
+        Map<Integer, Map<String, int[]>> positionsByPage = loadPositions(pages.keySet(), lemmas);
+        Map<Integer, Integer> filteredPages = new HashMap<>();
+        pages.forEach((pageId, siteId) -> {
+            QueryPositions site = querySites.get(siteId);
+            if (site == null || site.matches(positionsByPage.getOrDefault(pageId, Map.of()), maxDistance)) {
+                filteredPages.put(pageId, siteId);
+            }
+        });
         return filteredPages;
     }
 
-    private boolean areWordsInProximity(String content, String[] queryWords, int maxDistance) {
-        List<Integer> positions = new ArrayList<>();
-        for (String word : queryWords) {
-            int position = content.indexOf(word);
-            if (position == -1) {
-                return false;
-            }
-            positions.add(position);
-        }
-
-        Collections.sort(positions);
-
-        for (int i = 0; i < positions.size() - 1; i++) {
-            if (positions.get(i + 1) - positions.get(i) > maxDistance + queryWords[i].length()) {
-                return false;
+    private Map<Integer, Map<String, int[]>> loadPositions(Set<Integer> pageIds, List<Term> lemmas) {
+        Map<Integer, Map<String, int[]>> positionsByPage = new HashMap<>();
+        for (Term lemma : lemmas) {
+            PostingList lemmaPostings = lemma.postings();
+            for (int pageId : pageIds) {
+                int index = lemmaPostings.indexOf(pageId);
+                if (index >= 0) {
+                    positionsByPage.computeIfAbsent(pageId, key -> new HashMap<>())
+                            .put(lemma.lemma(), Positions.decode(lemmaPostings.getPositions(index)));
+                }
             }
         }
-
-        return true;
+        return positionsByPage;
     }
+
 }
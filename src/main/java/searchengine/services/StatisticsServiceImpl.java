@@ -10,6 +10,11 @@ import searchengine.model.SiteTable;
 import searchengine.repository.LemmaRepository;
 import searchengine.repository.PageRepository;
 import searchengine.repository.SiteRepository;
+import searchengine.services.indexing.PageContentStore;
+import searchengine.services.morphology.LemmaCache;
+import searchengine.services.morphology.LemmaFinderImpl;
+import searchengine.services.parsing.CrawlScheduler;
+import searchengine.services.parsing.FetchStats;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -20,12 +25,15 @@ public class StatisticsServiceImpl implements StatisticsService {
     private final PageRepository pageRepository;
     private final LemmaRepository lemmaRepository;
     private final SiteRepository siteRepository;
+    private final CrawlScheduler crawlScheduler;
+    private final PageContentStore contentStore;
+    private final LemmaFinderImpl lemmaFinder;
 
 
     @Override
     public StatisticsResponse getStatistics() {
         List<DetailedStatisticsItem> detailed = new ArrayList<>();
-        List<SiteTable> sitesList = siteRepository.findAll();
+        List<SiteTable> sitesList = siteRepository.findAllByLiveTrue();
 
         TotalStatistics total = new TotalStatistics();
         total.setIndexing(true);
@@ -43,10 +51,24 @@ public class StatisticsServiceImpl implements StatisticsService {
             item.setStatus(siteTable.getStatus().toString());
             item.setError(siteTable.getLastError());
             item.setStatusTime(siteTable.getStatusTime());
+            FetchStats fetchStats = crawlScheduler.getFetchStats(siteTable.getUrl());
+            if (fetchStats != null) {
+                item.setFetches(fetchStats.getFetches());
+                item.setRefetchedUrls(fetchStats.getRefetchedUrls());
+            }
             total.setPages(total.getPages() + pages);
             total.setLemmas(total.getLemmas() + lemmas);
             detailed.add(item);
         }
+        PageContentStore.ContentStats contentStats = contentStore.getStats();
+        if (contentStats != null) {
+            total.setContentCompressionRatio(contentStats.compressionRatio());
+            total.setContentLoadMillis(contentStats.averageLoadMillis());
+        }
+        LemmaCache.CacheStats cacheStats = lemmaFinder.getCacheStats();
+        total.setLemmaCacheHits(cacheStats.hits());
+        total.setLemmaCacheMisses(cacheStats.misses());
+        total.setLemmaCacheEvictions(cacheStats.evictions());
 
         StatisticsResponse response = new StatisticsResponse();
         StatisticsData data = new StatisticsData();
@@ -0,0 +1,248 @@
+package searchengine.services.indexing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import searchengine.model.PageTable;
+import searchengine.model.SiteTable;
+import searchengine.properties.PipelineSettings;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Inserts pages, lemmas and index rows with batched JDBC statements, bypassing the persistence context.
+ * Ids are reserved up front with {@link IdBlockAllocator}, one round trip per batch, so the rows need
+ * no generated keys back and the driver can rewrite each batch into multi-row INSERTs
+ * ({@code rewriteBatchedStatements=true}).
+ * <p>
+ * Lemma rows are always written in sorted order (ids for increments, lemma strings for inserts), so concurrent
+ * writers lock them in the same order; {@link #retryOnLockFailure} covers the lock conflicts that remain.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BulkWriter {
+    private static final String INSERT_PAGE = "INSERT INTO page "
+            + "(id, site_id, path, code, title, text, etag, last_modified, content_hash) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_INDEX = "INSERT INTO index_table (id, page_id, lemma_id, index_rank, positions) "
+            + "VALUES (?, ?, ?, ?, ?)";
+    private static final String UPSERT_LEMMA = "INSERT INTO lemma (id, site_id, lemma, frequency) VALUES (?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE frequency = frequency + VALUES(frequency)";
+    private static final String INCREMENT_FREQUENCY = "UPDATE lemma SET frequency = frequency + ? WHERE id = ?";
+    private static final String DELETE_UNUSED_LEMMAS = "DELETE FROM lemma WHERE site_id = ? AND frequency <= 0";
+    private static final String WITHDRAW_FREQUENCIES = "UPDATE lemma l JOIN (SELECT lemma_id, COUNT(*) AS pages "
+            + "FROM index_table WHERE page_id IN (%s) GROUP BY lemma_id) w ON w.lemma_id = l.id "
+            + "SET l.frequency = l.frequency - w.pages";
+    private static final int LOCK_RETRIES = 5;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final IdBlockAllocator idBlockAllocator;
+    private final PageContentStore contentStore;
+    private final PostingStore postingStore;
+    private final PipelineSettings settings;
+    private final TransactionTemplate transactionTemplate;
+
+    public void insertPages(List<PageTable> pages) {
+        if (pages.isEmpty()) {
+            return;
+        }
+        assignIds("page", pages, PageTable::setId);
+        jdbcTemplate.batchUpdate(INSERT_PAGE, pages, batchSize(), (statement, page) -> {
+            statement.setInt(1, page.getId());
+            statement.setInt(2, page.getSiteId().getId());
+            statement.setString(3, page.getPath());
+            statement.setInt(4, page.getCode());
+            statement.setString(5, page.getTitle());
+            statement.setString(6, page.getText());
+            statement.setString(7, page.getEtag());
+            statement.setString(8, page.getLastModified());
+            statement.setString(9, page.getContentHash());
+        });
+        contentStore.saveAll(pages);
+    }
+
+    /**
+     * Adds {@code deltas} to the frequencies of the site's lemmas, creating the missing ones, without reading
+     * frequencies back: concurrent indexers of the same site only ever increment. Ids are reserved only for
+     * lemmas not found by the initial lookup; if another writer inserts one in between, the unique
+     * (site_id, lemma) key turns the insert into an increment and the id is read back.
+     *
+     * @return id of every lemma in {@code deltas}
+     */
+    public Map<String, Integer> upsertLemmas(SiteTable siteTable, Map<String, Integer> deltas) {
+        if (deltas.isEmpty()) {
+            return new HashMap<>();
+        }
+        Map<String, Integer> ids = findLemmaIds(siteTable, deltas.keySet());
+        Map<Integer, Integer> increments = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        deltas.forEach((lemma, delta) -> {
+            Integer id = ids.get(lemma);
+            if (id == null) {
+                missing.add(lemma);
+            } else {
+                increments.merge(id, delta, Integer::sum);
+            }
+        });
+        incrementFrequencies(increments);
+        if (!missing.isEmpty()) {
+            Collections.sort(missing);
+            int next = idBlockAllocator.allocate("lemma", missing.size());
+            List<Object[]> rows = new ArrayList<>(missing.size());
+            for (String lemma : missing) {
+                rows.add(new Object[]{next++, siteTable.getId(), lemma, deltas.get(lemma)});
+            }
+            jdbcTemplate.batchUpdate(UPSERT_LEMMA, rows);
+            ids.putAll(findLemmaIds(siteTable, missing));
+        }
+        return ids;
+    }
+
+    /**
+     * Adds each delta (negative to withdraw a page) to the frequency of the lemma with that id.
+     */
+    public void incrementFrequencies(Map<Integer, Integer> deltas) {
+        List<Object[]> rows = new ArrayList<>(deltas.size());
+        new TreeMap<>(deltas).forEach((id, delta) -> {
+            if (delta != 0) {
+                rows.add(new Object[]{delta, id});
+            }
+        });
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INCREMENT_FREQUENCY, rows);
+        }
+    }
+
+    /**
+     * Runs {@code writes} in a transaction of its own, retrying it when InnoDB rolls it back as a deadlock victim
+     * or on a lock wait timeout. The rollback is whole, so every attempt applies the writes exactly once.
+     * Must not be called inside another transaction, which the failure would have marked rollback-only.
+     */
+    public <T> T retryOnLockFailure(Supplier<T> writes) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> writes.get());
+            } catch (DeadlockLoserDataAccessException | CannotAcquireLockException exception) {
+                if (attempt == LOCK_RETRIES) {
+                    throw exception;
+                }
+                log.warn("Lemma write lost a lock conflict, attempt {} of {}: {}", attempt, LOCK_RETRIES,
+                        exception.getMessage());
+                try {
+                    Thread.sleep(50L * attempt);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw exception;
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands the id of every lemma of the site to {@code consumer}, without loading entities.
+     */
+    public void forEachLemmaId(SiteTable siteTable, ObjIntConsumer<String> consumer) {
+        jdbcTemplate.query("SELECT id, lemma FROM lemma WHERE site_id = ?", resultSet -> {
+            consumer.accept(resultSet.getString(2), resultSet.getInt(1));
+        }, siteTable.getId());
+    }
+
+    public int deleteUnusedLemmas(SiteTable siteTable) {
+        return jdbcTemplate.update(DELETE_UNUSED_LEMMAS, siteTable.getId());
+    }
+
+    /**
+     * Takes the pages out of the index: every lemma's frequency drops by the number of these pages it occurs on,
+     * then their index rows are deleted. Two statements per {@value SqlChunks#SIZE} pages; lemmas left
+     * at zero are removed by {@link #deleteUnusedLemmas}.
+     */
+    public void withdrawPages(Collection<Integer> pageIds) {
+        postingStore.invalidatePages(pageIds);
+        SqlChunks.forEach(pageIds, (placeholders, arguments) -> {
+            jdbcTemplate.update(String.format(WITHDRAW_FREQUENCIES, placeholders), arguments);
+            jdbcTemplate.update("DELETE FROM index_table WHERE page_id IN (" + placeholders + ")", arguments);
+        });
+    }
+
+    /**
+     * Withdraws the pages and deletes them; their stored HTML goes with them (ON DELETE CASCADE).
+     */
+    public void deletePages(Collection<Integer> pageIds) {
+        withdrawPages(pageIds);
+        SqlChunks.forEach(pageIds, (placeholders, arguments) ->
+                jdbcTemplate.update("DELETE FROM page WHERE id IN (" + placeholders + ")", arguments));
+    }
+
+    private Map<String, Integer> findLemmaIds(SiteTable siteTable, Collection<String> lemmas) {
+        Map<String, Integer> ids = new HashMap<>();
+        SqlChunks.forEach(lemmas, (placeholders, chunk) -> {
+            Object[] arguments = Arrays.copyOf(chunk, chunk.length + 1);
+            arguments[chunk.length] = siteTable.getId();
+            jdbcTemplate.query("SELECT id, lemma FROM lemma WHERE lemma IN (" + placeholders + ") AND site_id = ?",
+                    resultSet -> {
+                        ids.put(resultSet.getString(2), resultSet.getInt(1));
+                    }, arguments);
+        });
+        return ids;
+    }
+
+    /**
+     * Inserts the buffered postings as index rows, materializing each row only while its statement is bound.
+     */
+    public void insertPostings(PostingBuffer postings) {
+        if (postings.size() == 0) {
+            return;
+        }
+        int firstId = idBlockAllocator.allocate("index_table", postings.size());
+        for (int from = 0; from < postings.size(); from += batchSize()) {
+            int offset = from;
+            int count = Math.min(batchSize(), postings.size() - from);
+            jdbcTemplate.batchUpdate(INSERT_INDEX, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement statement, int i) throws SQLException {
+                    int index = offset + i;
+                    statement.setInt(1, firstId + index);
+                    statement.setInt(2, postings.getPageId(index));
+                    statement.setInt(3, postings.getLemmaId(index));
+                    statement.setFloat(4, postings.getFrequency(index));
+                    statement.setBytes(5, postings.getPositions(index));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return count;
+                }
+            });
+        }
+        invalidatePostings(postings);
+    }
+
+    /**
+     * Drops the encoded postings of the buffered postings' lemmas; needed after writing their index rows
+     * by any other path.
+     */
+    public void invalidatePostings(PostingBuffer postings) {
+        postingStore.invalidate(postings.getLemmaIds());
+    }
+
+    private <T> void assignIds(String sequence, List<T> rows, ObjIntConsumer<T> setter) {
+        int next = idBlockAllocator.allocate(sequence, rows.size());
+        for (T row : rows) {
+            setter.accept(row, next++);
+        }
+    }
+
+    private int batchSize() {
+        return Math.max(settings.getBatchSize(), 1);
+    }
+}
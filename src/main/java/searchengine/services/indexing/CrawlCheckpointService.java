@@ -0,0 +1,115 @@
+package searchengine.services.indexing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import searchengine.model.CrawlCheckpoint;
+import searchengine.model.SiteTable;
+import searchengine.properties.CrawlerSettings;
+import searchengine.repository.CrawlCheckpointRepository;
+import searchengine.services.parsing.CrawlFrontier;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Saves the pending and visited URLs of running crawls, one row per site, so an indexing run stopped
+ * by the user or by a restart can be continued instead of starting over. URL lists are stored
+ * deflated, one URL per line.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CrawlCheckpointService {
+    private final CrawlCheckpointRepository checkpointRepository;
+    private final CrawlerSettings crawlerSettings;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "crawl-checkpoint");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ScheduledFuture<?> schedule(SiteTable siteTable, CrawlFrontier frontier) {
+        long interval = Math.max(crawlerSettings.getCheckpointInterval(), 1000);
+        return timer.scheduleWithFixedDelay(() -> {
+            try {
+                save(siteTable, frontier);
+            } catch (Exception exception) {
+                log.error("Checkpoint of {} failed: {}", siteTable.getUrl(), exception.getMessage());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void save(SiteTable siteTable, CrawlFrontier frontier) {
+        CrawlFrontier.Snapshot snapshot = frontier.snapshot();
+        CrawlCheckpoint checkpoint = checkpointRepository.findBySiteId(siteTable);
+        if (checkpoint == null) {
+            checkpoint = new CrawlCheckpoint();
+            checkpoint.setSiteId(siteTable);
+        }
+        checkpoint.setPending(encode(snapshot.pending()));
+        checkpoint.setVisited(encode(snapshot.visited()));
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpointRepository.save(checkpoint);
+        log.info("Checkpoint of {}: {} pending, {} visited URLs",
+                siteTable.getUrl(), snapshot.pending().size(), snapshot.visited().size());
+    }
+
+    public CrawlFrontier.Snapshot load(SiteTable siteTable) {
+        CrawlCheckpoint checkpoint = checkpointRepository.findBySiteId(siteTable);
+        if (checkpoint == null) {
+            return null;
+        }
+        return new CrawlFrontier.Snapshot(decode(checkpoint.getPending()), decode(checkpoint.getVisited()));
+    }
+
+    public synchronized void delete(SiteTable siteTable) {
+        if (siteTable.getId() != 0) {
+            checkpointRepository.deleteBySiteId(siteTable);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private byte[] encode(List<String> urls) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes)) {
+            out.write(String.join("\n", urls).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private List<String> decode(byte[] data) {
+        String text;
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(data))) {
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<String> urls = new ArrayList<>();
+        for (String url : text.split("\n")) {
+            if (!url.isEmpty()) {
+                urls.add(url);
+            }
+        }
+        return urls;
+    }
+}
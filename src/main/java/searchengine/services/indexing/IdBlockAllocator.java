@@ -0,0 +1,52 @@
+package searchengine.services.indexing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+/**
+ * Hands out consecutive id blocks for {@code page}, {@code lemma} and {@code index_table} from the
+ * {@code id_block} table. The entities' table generators read the same rows (pooled-lo with
+ * {@code hibernate.id.generator.stored_last_used: false}: the stored value is the next free id), so ids taken
+ * by bulk inserts and by JPA never collide.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class IdBlockAllocator {
+    public static final String TABLE = "id_block";
+    private static final List<String> SEQUENCES = List.of("page", "lemma", "index_table");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE
+                + " (name VARCHAR(255) NOT NULL PRIMARY KEY, next_id BIGINT)");
+        for (String sequence : SEQUENCES) {
+            jdbcTemplate.update("INSERT INTO " + TABLE + " (name, next_id) "
+                    + "SELECT ?, COALESCE(MAX(id), 0) + 1 FROM " + sequence
+                    + " ON DUPLICATE KEY UPDATE next_id = GREATEST(next_id, VALUES(next_id))", sequence);
+        }
+    }
+
+    /**
+     * @return first id of a block of {@code count} ids reserved for {@code sequence}
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int allocate(String sequence, int count) {
+        Long next = jdbcTemplate.queryForObject("SELECT next_id FROM " + TABLE + " WHERE name = ? FOR UPDATE",
+                Long.class, sequence);
+        if (next == null) {
+            throw new IllegalStateException("Unknown id sequence: " + sequence);
+        }
+        jdbcTemplate.update("UPDATE " + TABLE + " SET next_id = ? WHERE name = ?", next + count, sequence);
+        return Math.toIntExact(next);
+    }
+}
@@ -0,0 +1,384 @@
+package searchengine.services.indexing;
+
+import lombok.extern.slf4j.Slf4j;
+import searchengine.model.PageTable;
+import searchengine.model.SiteTable;
+import searchengine.properties.PipelineSettings;
+import searchengine.repository.IndexRepository;
+import searchengine.repository.PageRepository;
+import searchengine.services.morphology.LemmaFinder;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Streams crawled pages of one site into the index while the crawl is still running:
+ * crawler threads hand over pages, one stage persists them, and a pool of {@code lemma-workers} lemmatizes
+ * them and writes lemmas and index rows. All hand-offs are bounded queues, so a slow database throttles the
+ * crawler instead of letting pages pile up in memory.
+ * <p>
+ * Pages that already exist (re-crawl of a changed page) are handled entirely by the indexing stage:
+ * their old postings are withdrawn before the page is updated and indexed again. Pages that
+ * disappeared from the site are withdrawn and deleted the same way.
+ * <p>
+ * New pages and index rows are written in batches of {@code batch-size}, through {@link BulkWriter} or,
+ * with {@code bulk-writes: false}, through the repositories; the rows per second of either path are logged
+ * when the site is finished. Lemma frequencies are only ever changed by upserts and increments,
+ * so a concurrent single-page reindex of the same site cannot lose updates. Workers buffer postings in
+ * a {@link PostingBuffer}; the bytes it used per posting are logged with the write rate.
+ * <p>
+ * At most once per {@code search-refresh-interval} a flush runs the {@code publisher}, which re-encodes the
+ * postings written so far and hands them to search, so pages become searchable while the crawl goes on.
+ * It runs under the write side of a lock whose read side every index write holds, so no index rows are
+ * written while their postings are being re-encoded.
+ */
+@Slf4j
+public class IndexingPipeline {
+    private static final Item END = new Item(null, false, false);
+    private static final PageTable NO_PAGE = new PageTable();
+
+    private final SiteTable siteTable;
+    private final PageRepository pageRepository;
+    private final IndexRepository indexRepository;
+    private final LemmaFinder lemmaFinder;
+    private final BulkWriter bulkWriter;
+    private final PageContentStore contentStore;
+    /**
+     * Whether pages and index rows go through {@link BulkWriter} or the repositories; lemma frequencies are
+     * upserted through {@link BulkWriter} either way, as concurrent workers share the unique (site, lemma) key.
+     */
+    private final boolean bulkWrites;
+    private final int lemmaFlushPages;
+    private final int batchSize;
+    private final int workerCount;
+    private final BlockingQueue<Item> fetched;
+    private final BlockingQueue<Item> persisted;
+    private final BlockingQueue<PageTable> lemmatizing;
+    private final Map<String, Integer> lemmaIds = new ConcurrentHashMap<>();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong postingsBuffered = new AtomicLong();
+    private final AtomicLong bytesBuffered = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+    private final Runnable publisher;
+    private final long publishIntervalNanos;
+    private final AtomicLong lastPublished = new AtomicLong(System.nanoTime());
+    private final ReadWriteLock indexWrites = new ReentrantReadWriteLock();
+    private final Thread pageWriter;
+    private final Thread lemmaIndexer;
+    private volatile Exception failure;
+    private volatile boolean closed;
+
+    public IndexingPipeline(SiteTable siteTable, PageRepository pageRepository, IndexRepository indexRepository,
+                            LemmaFinder lemmaFinder, BulkWriter bulkWriter, PageContentStore contentStore,
+                            PipelineSettings settings, Runnable publisher) {
+        this.siteTable = siteTable;
+        this.pageRepository = pageRepository;
+        this.indexRepository = indexRepository;
+        this.lemmaFinder = lemmaFinder;
+        this.bulkWriter = bulkWriter;
+        this.contentStore = contentStore;
+        this.bulkWrites = settings.isBulkWrites();
+        this.publisher = publisher;
+        this.publishIntervalNanos = TimeUnit.MILLISECONDS.toNanos(settings.getSearchRefreshInterval());
+        this.lemmaFlushPages = Math.max(settings.getLemmaFlushPages(), 1);
+        this.batchSize = Math.max(settings.getBatchSize(), 1);
+        this.fetched = new ArrayBlockingQueue<>(Math.max(settings.getQueueCapacity(), 1));
+        this.persisted = new ArrayBlockingQueue<>(Math.max(settings.getQueueCapacity(), 1));
+        this.lemmatizing = new ArrayBlockingQueue<>(Math.max(settings.getQueueCapacity(), 1));
+        this.workerCount = settings.getLemmaWorkers() > 0
+                ? settings.getLemmaWorkers()
+                : Runtime.getRuntime().availableProcessors();
+        this.pageWriter = new Thread(this::writePages, "page-writer-" + siteTable.getName());
+        this.lemmaIndexer = new Thread(this::indexLemmas, "lemma-indexer-" + siteTable.getName());
+    }
+
+    public void start() {
+        pageWriter.start();
+        lemmaIndexer.start();
+    }
+
+    public void accept(PageTable pageTable) {
+        put(new Item(pageTable, pageTable.getId() != 0, false));
+    }
+
+    public void remove(int pageId) {
+        PageTable pageTable = new PageTable();
+        pageTable.setId(pageId);
+        put(new Item(pageTable, true, true));
+    }
+
+    /**
+     * Drains everything accepted so far. Pages handed over afterwards (by fetches that were still
+     * in flight when the crawl was stopped) are dropped.
+     */
+    public void finish() throws Exception {
+        closed = true;
+        fetched.put(END);
+        pageWriter.join();
+        lemmaIndexer.join();
+        if (failure != null) {
+            throw failure;
+        }
+        long millis = Math.max(TimeUnit.NANOSECONDS.toMillis(writeNanos.get()), 1);
+        log.info("{}: {} rows written in {} ms with {} writes ({} rows per second), {} bytes buffered per posting",
+                siteTable.getUrl(), rowsWritten.get(), millis, bulkWrites ? "bulk" : "repository",
+                rowsWritten.get() * 1000 / millis, bytesBuffered.get() / Math.max(postingsBuffered.get(), 1));
+    }
+
+    public void abort() {
+        pageWriter.interrupt();
+        lemmaIndexer.interrupt();
+    }
+
+    private void put(Item item) {
+        try {
+            while (failure == null && !closed) {
+                if (fetched.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writePages() {
+        try {
+            while (true) {
+                List<Item> batch = new ArrayList<>();
+                batch.add(fetched.take());
+                fetched.drainTo(batch, batchSize - 1);
+                int end = batch.indexOf(END);
+                if (failure == null) {
+                    writeBatch(end < 0 ? batch : batch.subList(0, end));
+                }
+                if (end >= 0) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception exception) {
+            fail(exception);
+        } finally {
+            try {
+                persisted.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void writeBatch(List<Item> items) throws InterruptedException {
+        List<PageTable> newPages = items.stream()
+                .filter(item -> !item.existing())
+                .map(Item::page)
+                .toList();
+        long started = System.nanoTime();
+        if (bulkWrites) {
+            bulkWriter.insertPages(newPages);
+        } else {
+            pageRepository.saveAll(newPages);
+            contentStore.saveAll(newPages);
+        }
+        recordWrite(newPages.size(), started);
+        for (Item item : items) {
+            persisted.put(item);
+        }
+    }
+
+    private void indexLemmas() {
+        List<Thread> workers = new ArrayList<>();
+        try {
+            loadLemmas();
+            for (int i = 0; i < workerCount; i++) {
+                Thread worker = new Thread(new LemmaWorker(), "lemma-worker-" + siteTable.getName() + "-" + i);
+                workers.add(worker);
+                worker.start();
+            }
+            while (true) {
+                Item item = persisted.take();
+                if (item == END) {
+                    break;
+                }
+                if (failure != null) {
+                    continue;
+                }
+                if (!item.existing()) {
+                    lemmatizing.put(item.page());
+                    continue;
+                }
+                List<Integer> pageIds = List.of(item.page().getId());
+                indexWrites.readLock().lock();
+                try {
+                    bulkWriter.retryOnLockFailure(() -> {
+                        if (item.removed()) {
+                            bulkWriter.deletePages(pageIds);
+                        } else {
+                            bulkWriter.withdrawPages(pageIds);
+                        }
+                        return null;
+                    });
+                } finally {
+                    indexWrites.readLock().unlock();
+                }
+                if (!item.removed()) {
+                    PageTable saved = pageRepository.save(item.page());
+                    contentStore.save(item.page());
+                    lemmatizing.put(saved);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception exception) {
+            fail(exception);
+        } finally {
+            stopWorkers(workers);
+        }
+        if (failure == null && !Thread.currentThread().isInterrupted()) {
+            try {
+                bulkWriter.deleteUnusedLemmas(siteTable);
+            } catch (Exception exception) {
+                fail(exception);
+            }
+        }
+    }
+
+    private void stopWorkers(List<Thread> workers) {
+        try {
+            for (int i = 0; i < workers.size(); i++) {
+                lemmatizing.put(NO_PAGE);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            workers.forEach(Thread::interrupt);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void loadLemmas() {
+        if (siteTable.getId() == 0) {
+            return;
+        }
+        bulkWriter.forEachLemmaId(siteTable, lemmaIds::put);
+    }
+
+    private void publishIfDue() {
+        long now = System.nanoTime();
+        long last = lastPublished.get();
+        if (now - last < publishIntervalNanos || !lastPublished.compareAndSet(last, now)) {
+            return;
+        }
+        indexWrites.writeLock().lock();
+        try {
+            publisher.run();
+        } finally {
+            indexWrites.writeLock().unlock();
+        }
+    }
+
+    private void recordWrite(int rows, long started) {
+        rowsWritten.addAndGet(rows);
+        writeNanos.addAndGet(System.nanoTime() - started);
+    }
+
+    private void fail(Exception exception) {
+        log.error(exception.getMessage());
+        if (failure == null) {
+            failure = exception;
+        }
+        fetched.clear();
+        persisted.clear();
+    }
+
+    private record Item(PageTable page, boolean existing, boolean removed) {
+    }
+
+    /**
+     * Lemmatizes pages on its own thread into a {@link PostingBuffer}. Every {@code lemma-flush-pages} pages
+     * (or {@code batch-size} postings) the lemma counts are merged into the database as increments, which are
+     * additive, so workers never coordinate beyond the shared id cache.
+     */
+    private class LemmaWorker implements Runnable {
+        private final PostingBuffer postings = new PostingBuffer();
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    PageTable pageTable = lemmatizing.take();
+                    if (pageTable == NO_PAGE) {
+                        break;
+                    }
+                    if (failure != null) {
+                        continue;
+                    }
+                    try {
+                        lemmatize(pageTable);
+                        if (postings.getPages() >= lemmaFlushPages || postings.size() >= batchSize) {
+                            flush();
+                        }
+                    } catch (Exception exception) {
+                        fail(exception);
+                    }
+                }
+                if (failure == null) {
+                    flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception exception) {
+                fail(exception);
+            }
+        }
+
+        private void lemmatize(PageTable pageTable) {
+            if (pageTable.getCode() != 200 || pageTable.getText() == null) {
+                return;
+            }
+            postings.addPage(pageTable.getId(), pageTable.getText(), lemmaFinder);
+        }
+
+        private void flush() {
+            if (postings.size() == 0) {
+                postings.clear();
+                return;
+            }
+            long started = System.nanoTime();
+            indexWrites.readLock().lock();
+            try {
+                Map<Integer, Integer> increments = new HashMap<>();
+                Map<String, Integer> unknown = postings.collectFrequencies(
+                        lemma -> lemmaIds.getOrDefault(lemma, 0), increments);
+                Map<String, Integer> created = bulkWriter.retryOnLockFailure(() -> {
+                    bulkWriter.incrementFrequencies(increments);
+                    return bulkWriter.upsertLemmas(siteTable, unknown);
+                });
+                lemmaIds.putAll(created);
+                postings.resolve(created);
+
+                if (bulkWrites) {
+                    bulkWriter.insertPostings(postings);
+                } else {
+                    indexRepository.saveAll(postings.toIndexTables());
+                    bulkWriter.invalidatePostings(postings);
+                }
+                recordWrite(increments.size() + unknown.size() + postings.size(), started);
+                postingsBuffered.addAndGet(postings.size());
+                bytesBuffered.addAndGet(postings.getBufferedBytes());
+            } finally {
+                indexWrites.readLock().unlock();
+            }
+            postings.clear();
+            publishIfDue();
+        }
+    }
+}
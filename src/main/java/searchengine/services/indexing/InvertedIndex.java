@@ -0,0 +1,157 @@
+package searchengine.services.indexing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import searchengine.model.SiteTable;
+
+import java.util.*;
+
+/**
+ * The searched index held in memory: per live site, every lemma with its frequency and its {@link PostingList}
+ * (page ids, frequencies and positions in primitive arrays). Search evaluates queries against it alone,
+ * without reading lemmas, index rows or pages through the persistence context.
+ * <p>
+ * Loaded from {@link PostingStore} in the background after startup. Indexers publish their changes with
+ * {@link #refresh} whenever postings are rebuilt, periodically during a crawl and when a job ends: the site's
+ * lemma rows are re-read and only the postings of changed lemmas are loaded again, then the site's snapshot is
+ * swapped in whole, so a query sees either the old or the new state of a site. A promoted generation replaces
+ * the site's previous one.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class InvertedIndex {
+    private final JdbcTemplate jdbcTemplate;
+    private final PostingStore postingStore;
+    private volatile Map<Integer, SiteIndex> sites = Map.of();
+    private volatile boolean loaded;
+    private volatile String loadError;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread thread = new Thread(this::load, "inverted-index-load");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return why the startup load failed, or {@code null}; search is unavailable until a restart
+     */
+    public String getLoadError() {
+        return loadError;
+    }
+
+    /**
+     * @return terms of the live sites (only of {@code siteUrl}, if given) for the lemmas, whose frequency is
+     * below {@code maxFrequency}, rarest first
+     */
+    public List<Term> find(Collection<String> lemmas, String siteUrl, int maxFrequency) {
+        List<Term> terms = new ArrayList<>();
+        for (SiteIndex siteIndex : sites.values()) {
+            if (siteUrl != null && !siteUrl.equalsIgnoreCase(siteIndex.site().url())) {
+                continue;
+            }
+            for (String lemma : lemmas) {
+                Term term = siteIndex.terms().get(lemma);
+                if (term != null && term.frequency() < maxFrequency) {
+                    terms.add(term);
+                }
+            }
+        }
+        terms.sort(Comparator.comparingInt(Term::frequency));
+        return terms;
+    }
+
+    /**
+     * @return whether search holds a snapshot of the live site, whatever the state of its current crawl
+     */
+    public boolean hasSite(String siteUrl) {
+        return sites.values().stream().anyMatch(siteIndex -> siteIndex.site().url().equalsIgnoreCase(siteUrl));
+    }
+
+    public SiteInfo getSite(int siteId) {
+        SiteIndex siteIndex = sites.get(siteId);
+        return siteIndex == null ? null : siteIndex.site();
+    }
+
+    /**
+     * Re-reads the lemmas of a live site, reloading the postings of {@code changedLemmaIds} and of lemmas
+     * not held yet; does nothing for a generation that is not live.
+     */
+    public synchronized void refresh(SiteTable siteTable, Collection<Integer> changedLemmaIds) {
+        if (!siteTable.isLive()) {
+            return;
+        }
+        long started = System.nanoTime();
+        SiteIndex previous = sites.get(siteTable.getId());
+        Map<Integer, Term> previousTerms = new HashMap<>();
+        if (previous != null) {
+            previous.terms().values().forEach(term -> previousTerms.put(term.lemmaId(), term));
+        }
+        Set<Integer> changed = new HashSet<>(changedLemmaIds);
+        Map<String, Term> terms = new HashMap<>();
+        Map<Integer, String> missing = new HashMap<>();
+        Map<Integer, Integer> frequencies = new HashMap<>();
+        jdbcTemplate.query("SELECT id, lemma, frequency FROM lemma WHERE site_id = ?", resultSet -> {
+            int id = resultSet.getInt(1);
+            Term term = previousTerms.get(id);
+            if (term == null || changed.contains(id)) {
+                missing.put(id, resultSet.getString(2));
+                frequencies.put(id, resultSet.getInt(3));
+            } else {
+                terms.put(term.lemma(), new Term(id, term.lemma(), term.siteId(), resultSet.getInt(3),
+                        term.postings()));
+            }
+        }, siteTable.getId());
+        postingStore.load(missing.keySet()).forEach((id, postings) -> terms.put(missing.get(id),
+                new Term(id, missing.get(id), siteTable.getId(), frequencies.get(id), postings)));
+
+        Map<Integer, SiteIndex> next = new HashMap<>(sites);
+        next.values().removeIf(siteIndex -> siteIndex.site().url().equals(siteTable.getUrl()));
+        next.put(siteTable.getId(), new SiteIndex(
+                new SiteInfo(siteTable.getId(), siteTable.getUrl(), siteTable.getName()), terms));
+        sites = next;
+        log.info("Search index of {}: {} lemmas, {} reloaded in {} ms", siteTable.getUrl(), terms.size(),
+                missing.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void load() {
+        try {
+            List<SiteTable> liveSites = jdbcTemplate.query("SELECT id, url, name FROM site WHERE live = TRUE",
+                    (resultSet, row) -> {
+                        SiteTable siteTable = new SiteTable();
+                        siteTable.setId(resultSet.getInt(1));
+                        siteTable.setUrl(resultSet.getString(2));
+                        siteTable.setName(resultSet.getString(3));
+                        return siteTable;
+                    });
+            for (SiteTable siteTable : liveSites) {
+                refresh(siteTable, List.of());
+            }
+            loaded = true;
+        } catch (Exception exception) {
+            log.error("Search index not loaded: {}", exception.getMessage());
+            loadError = exception.getMessage();
+        }
+    }
+
+    public record SiteInfo(int id, String url, String name) {
+    }
+
+    /**
+     * A lemma of one site: its frequency (number of pages) and postings.
+     */
+    public record Term(int lemmaId, String lemma, int siteId, int frequency, PostingList postings) {
+    }
+
+    private record SiteIndex(SiteInfo site, Map<String, Term> terms) {
+    }
+}
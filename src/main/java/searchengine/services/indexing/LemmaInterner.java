@@ -0,0 +1,58 @@
+package searchengine.services.indexing;
+
+import java.util.Arrays;
+
+/**
+ * Numbers distinct lemmas 0, 1, 2... in order of first occurrence. An open-addressing table of numbers
+ * probed by the lemma's hash, so interning a known lemma allocates nothing.
+ */
+final class LemmaInterner {
+    private String[] lemmas = new String[1024];
+    private int[] table = new int[2048];
+    private int size;
+
+    int intern(String lemma) {
+        int mask = table.length - 1;
+        int slot = spread(lemma.hashCode()) & mask;
+        for (int entry = table[slot]; entry != 0; entry = table[slot]) {
+            String known = lemmas[entry - 1];
+            if (known == lemma || known.equals(lemma)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == lemmas.length) {
+            lemmas = Arrays.copyOf(lemmas, size * 2);
+        }
+        lemmas[size] = lemma;
+        table[slot] = ++size;
+        if (size * 2 > table.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    String get(int number) {
+        return lemmas[number];
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void rehash() {
+        table = new int[table.length * 2];
+        int mask = table.length - 1;
+        for (int number = 0; number < size; number++) {
+            int slot = spread(lemmas[number].hashCode()) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = number + 1;
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,77 @@
+package searchengine.services.indexing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import searchengine.model.LemmaTable;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Brings an existing {@code lemma} table up to the binary collation of {@code lemma.lemma}, so the database
+ * compares lemmas like Java strings, and to the unique (site_id, lemma) key. The collation is checked on its own:
+ * {@code ddl-auto: update} may already have added the key to a table without duplicates.
+ * <p>
+ * Earlier single-page reindexing inserted a new row per lemma every time, so duplicates are merged before the
+ * key is added: their index rows are moved to the oldest row, index rows that now repeat a (page, lemma) pair
+ * are dropped, the other lemma rows are dropped and every frequency is recounted from index_table.
+ * The merge runs in one transaction and the key is added only after it commits, so a crash at any point
+ * leaves either the old rows untouched or merged rows without the key; both are picked up again on the next
+ * start, and since frequencies are always recounted from index_table a repeated run cannot leave them wrong.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class LemmaKeyMigration {
+    private static final String BINARY_COLLATION = "utf8mb4_bin";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void migrate() {
+        String collation = jdbcTemplate.queryForObject("SELECT collation_name FROM information_schema.columns "
+                + "WHERE table_schema = DATABASE() AND table_name = 'lemma' AND column_name = 'lemma'", String.class);
+        if (!BINARY_COLLATION.equals(collation)) {
+            jdbcTemplate.execute("ALTER TABLE lemma MODIFY lemma VARCHAR(255) "
+                    + "CHARACTER SET utf8mb4 COLLATE " + BINARY_COLLATION + " NOT NULL");
+            log.info("lemma.lemma collation changed from {} to {}", collation, BINARY_COLLATION);
+        }
+        Integer keys = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.statistics "
+                + "WHERE table_schema = DATABASE() AND table_name = 'lemma' AND index_name = ?",
+                Integer.class, LemmaTable.SITE_LEMMA_KEY);
+        if (keys != null && keys > 0) {
+            return;
+        }
+        Integer merged = transactionTemplate.execute(status -> {
+            jdbcTemplate.execute("CREATE TEMPORARY TABLE lemma_keep AS "
+                    + "SELECT site_id, lemma, MIN(id) AS keep_id FROM lemma "
+                    + "GROUP BY site_id, lemma HAVING COUNT(*) > 1");
+            try {
+                jdbcTemplate.update("UPDATE index_table i "
+                        + "JOIN lemma l ON l.id = i.lemma_id "
+                        + "JOIN lemma_keep k ON k.site_id = l.site_id AND k.lemma = l.lemma "
+                        + "SET i.lemma_id = k.keep_id WHERE l.id <> k.keep_id");
+                jdbcTemplate.update("DELETE i FROM index_table i "
+                        + "JOIN index_table newer ON newer.page_id = i.page_id AND newer.lemma_id = i.lemma_id "
+                        + "AND newer.id > i.id");
+                int deleted = jdbcTemplate.update("DELETE l FROM lemma l "
+                        + "JOIN lemma_keep k ON k.site_id = l.site_id AND k.lemma = l.lemma "
+                        + "WHERE l.id <> k.keep_id");
+                jdbcTemplate.update("UPDATE lemma l LEFT JOIN (SELECT lemma_id, COUNT(DISTINCT page_id) AS pages "
+                        + "FROM index_table GROUP BY lemma_id) f ON f.lemma_id = l.id "
+                        + "SET l.frequency = COALESCE(f.pages, 0)");
+                return deleted;
+            } finally {
+                jdbcTemplate.execute("DROP TEMPORARY TABLE lemma_keep");
+            }
+        });
+        jdbcTemplate.execute("ALTER TABLE lemma ADD CONSTRAINT " + LemmaTable.SITE_LEMMA_KEY
+                + " UNIQUE (site_id, lemma)");
+        log.info("Unique key {} added to lemma, {} duplicate rows merged", LemmaTable.SITE_LEMMA_KEY, merged);
+    }
+}
@@ -0,0 +1,186 @@
+package searchengine.services.indexing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import searchengine.model.PageTable;
+import searchengine.properties.PipelineSettings;
+
+import javax.annotation.PostConstruct;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Raw HTML of pages, deflated, in the {@code page_content} side table. The {@code page} row no longer carries
+ * the body, so listing or counting pages never transfers HTML; it is read only by the few paths that need it
+ * (re-parsing an unchanged page for links, text backfill). Rows go away with their page (ON DELETE CASCADE).
+ * <p>
+ * On first start with the new layout the bodies still stored in {@code page.content} are moved here and
+ * the column is dropped.
+ * <p>
+ * The size totals for the statistics scan the whole table, so they are cached and recomputed at most once
+ * every {@value #STATS_REFRESH_MILLIS} ms.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class PageContentStore {
+    private static final String UPSERT = "INSERT INTO page_content (page_id, raw_size, stored_size, data) "
+            + "VALUES (?, ?, ?, ?) ON DUPLICATE KEY UPDATE raw_size = VALUES(raw_size), "
+            + "stored_size = VALUES(stored_size), data = VALUES(data)";
+    private static final int MIGRATION_BATCH = 200;
+    private static final long STATS_REFRESH_MILLIS = 60_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PipelineSettings settings;
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong loadNanos = new AtomicLong();
+    private final AtomicReference<SizeTotals> sizeTotals = new AtomicReference<>();
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS page_content ("
+                + "page_id INT NOT NULL PRIMARY KEY, "
+                + "raw_size INT NOT NULL, "
+                + "stored_size INT NOT NULL, "
+                + "data LONGBLOB NOT NULL, "
+                + "CONSTRAINT fk_page_content_page FOREIGN KEY (page_id) REFERENCES page (id) ON DELETE CASCADE)");
+        Integer legacyColumn = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.columns "
+                + "WHERE table_schema = DATABASE() AND table_name = 'page' AND column_name = 'content'", Integer.class);
+        if (legacyColumn != null && legacyColumn > 0) {
+            migrateLegacyContent();
+        }
+    }
+
+    public void saveAll(Collection<PageTable> pages) {
+        List<Object[]> rows = new ArrayList<>(pages.size());
+        for (PageTable page : pages) {
+            if (page.getContent() != null) {
+                byte[] raw = page.getContent().getBytes(StandardCharsets.UTF_8);
+                byte[] data = compress(raw);
+                rows.add(new Object[]{page.getId(), raw.length, data.length, data});
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT, rows);
+        }
+    }
+
+    public void save(PageTable page) {
+        saveAll(List.of(page));
+    }
+
+    /**
+     * @return HTML of the page, or an empty string if none is stored
+     */
+    public String load(int pageId) {
+        long started = System.nanoTime();
+        List<String> contents = jdbcTemplate.query("SELECT raw_size, data FROM page_content WHERE page_id = ?",
+                (resultSet, row) -> decompress(resultSet.getBytes(2), resultSet.getInt(1)), pageId);
+        loads.incrementAndGet();
+        loadNanos.addAndGet(System.nanoTime() - started);
+        return contents.isEmpty() ? "" : contents.get(0);
+    }
+
+    public ContentStats getStats() {
+        SizeTotals totals = sizeTotals.get();
+        long now = System.currentTimeMillis();
+        if (totals == null || now - totals.computedAt() >= STATS_REFRESH_MILLIS) {
+            totals = jdbcTemplate.queryForObject("SELECT COUNT(*), COALESCE(SUM(raw_size), 0), "
+                            + "COALESCE(SUM(stored_size), 0) FROM page_content",
+                    (resultSet, row) -> new SizeTotals(resultSet.getLong(1), resultSet.getLong(2),
+                            resultSet.getLong(3), now));
+            if (totals == null) {
+                return null;
+            }
+            sizeTotals.set(totals);
+        }
+        long count = loads.get();
+        double averageLoadMillis = count == 0 ? 0 : loadNanos.get() / 1_000_000.0 / count;
+        return new ContentStats(totals.pages(), totals.rawBytes(), totals.storedBytes(), count, averageLoadMillis);
+    }
+
+    private void migrateLegacyContent() {
+        log.info("Moving page bodies from page.content to page_content");
+        jdbcTemplate.execute("ALTER TABLE page MODIFY content MEDIUMTEXT NULL");
+        int lastId = 0;
+        long moved = 0;
+        while (true) {
+            List<Object[]> rows = jdbcTemplate.query("SELECT id, content FROM page "
+                    + "WHERE id > ? AND content IS NOT NULL ORDER BY id LIMIT ?", (resultSet, row) -> {
+                byte[] raw = resultSet.getString(2).getBytes(StandardCharsets.UTF_8);
+                byte[] data = compress(raw);
+                return new Object[]{resultSet.getInt(1), raw.length, data.length, data};
+            }, lastId, MIGRATION_BATCH);
+            if (rows.isEmpty()) {
+                break;
+            }
+            jdbcTemplate.batchUpdate(UPSERT, rows);
+            lastId = (int) rows.get(rows.size() - 1)[0];
+            moved += rows.size();
+        }
+        jdbcTemplate.execute("ALTER TABLE page DROP COLUMN content");
+        ContentStats stats = getStats();
+        log.info("Moved {} page bodies, compression ratio {}", moved,
+                stats == null ? "-" : String.format("%.2f", stats.compressionRatio()));
+    }
+
+    private byte[] compress(byte[] raw) {
+        Deflater deflater = new Deflater(settings.getContentCompressionLevel());
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(raw.length / 4, 64));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private String decompress(byte[] data, int rawSize) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            byte[] raw = new byte[rawSize];
+            int length = 0;
+            while (!inflater.finished() && length < rawSize) {
+                int read = inflater.inflate(raw, length, rawSize - length);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += read;
+            }
+            return new String(raw, 0, length, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException(e));
+        } finally {
+            inflater.end();
+        }
+    }
+
+    public record ContentStats(long pages, long rawBytes, long storedBytes, long loads, double averageLoadMillis) {
+        public double compressionRatio() {
+            return storedBytes == 0 ? 0 : (double) rawBytes / storedBytes;
+        }
+    }
+
+    private record SizeTotals(long pages, long rawBytes, long storedBytes, long computedAt) {
+    }
+}
@@ -0,0 +1,63 @@
+package searchengine.services.indexing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import searchengine.services.parsing.TextExtractor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extracts text and title for pages stored before they were kept alongside the HTML, in the background
+ * after startup. Such pages show up in search with an empty snippet until they are processed; their lemmas
+ * were built from raw HTML and are only corrected by the next reindex.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PageTextBackfill {
+    private static final int BATCH = 200;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PageContentStore contentStore;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread thread = new Thread(this::backfill, "page-text-backfill");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void backfill() {
+        int lastId = 0;
+        int total = 0;
+        try {
+            while (true) {
+                List<Integer> ids = jdbcTemplate.queryForList(
+                        "SELECT id FROM page WHERE text IS NULL AND id > ? ORDER BY id LIMIT ?",
+                        Integer.class, lastId, BATCH);
+                List<Object[]> updates = new ArrayList<>(ids.size());
+                for (int id : ids) {
+                    Document document = TextExtractor.parse(contentStore.load(id));
+                    updates.add(new Object[]{TextExtractor.text(document), TextExtractor.title(document), id});
+                }
+                if (updates.isEmpty()) {
+                    break;
+                }
+                jdbcTemplate.batchUpdate("UPDATE page SET text = ?, title = ? WHERE id = ?", updates);
+                lastId = (int) updates.get(updates.size() - 1)[2];
+                total += updates.size();
+            }
+        } catch (Exception exception) {
+            log.error("Text backfill stopped: {}", exception.getMessage());
+        }
+        if (total > 0) {
+            log.info("Text and title extracted for {} previously stored pages", total);
+        }
+    }
+}
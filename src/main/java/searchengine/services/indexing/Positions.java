@@ -0,0 +1,35 @@
+package searchengine.services.indexing;
+
+import java.util.Arrays;
+
+/**
+ * Word positions of one lemma on one page, stored in {@code index_table.positions} as ascending
+ * positions, each written as the {@link Varint} of its distance from the previous one (by {@link PostingBuffer}).
+ */
+public final class Positions {
+
+    private Positions() {
+    }
+
+    /**
+     * @return the positions in ascending order, or {@code null} for rows indexed before positions were stored
+     */
+    public static int[] decode(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        int[] positions = new int[data.length];
+        int count = 0;
+        int previous = 0;
+        int[] offset = {0};
+        while (offset[0] < data.length) {
+            previous += Varint.read(data, offset);
+            positions[count++] = previous;
+        }
+        return Arrays.copyOf(positions, count);
+    }
+
+    public static boolean contains(int[] positions, int position) {
+        return Arrays.binarySearch(positions, position) >= 0;
+    }
+}
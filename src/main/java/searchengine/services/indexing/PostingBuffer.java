@@ -0,0 +1,219 @@
+package searchengine.services.indexing;
+
+import searchengine.model.IndexTable;
+import searchengine.model.LemmaTable;
+import searchengine.model.PageTable;
+import searchengine.services.morphology.LemmaFinder;
+
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+/**
+ * Postings of a batch of lemmatized pages in primitive columns: page id, lemma number (see {@link LemmaInterner}),
+ * frequency and the end of the posting's positions in one shared byte array, written in the {@link Positions}
+ * format. A posting costs four ints plus its encoded positions instead of a record, a boxed position list and
+ * an entity; rows are only materialized when written, see {@link BulkWriter#insertPostings}.
+ * <p>
+ * Lemma numbers and their database ids outlive {@link #clear}, so a buffer reused for a whole site resolves
+ * each lemma at most once. Not thread-safe: one buffer per lemma worker.
+ */
+public final class PostingBuffer {
+    private static final int POSTING_BYTES = 4 * Integer.BYTES;
+
+    private final LemmaInterner lemmas = new LemmaInterner();
+    private int[] databaseIds = new int[1024];
+    private int[] pageCounts = new int[1024];
+    private int[] touched = new int[1024];
+    private int touchedCount;
+
+    private long[] occurrences = new long[1024];
+    private int occurrenceCount;
+
+    private int[] pageIds = new int[1024];
+    private int[] lemmaNumbers = new int[1024];
+    private int[] frequencies = new int[1024];
+    private int[] positionEnds = new int[1024];
+    private byte[] positions = new byte[8192];
+    private int size;
+    private int positionsLength;
+    private int pages;
+
+    /**
+     * Lemmatizes the page's text and buffers one posting per lemma occurring on it.
+     *
+     * @return number of postings added
+     */
+    public int addPage(int pageId, String text, LemmaFinder lemmaFinder) {
+        occurrenceCount = 0;
+        lemmaFinder.forEachLemma(text, this::addOccurrence);
+        Arrays.sort(occurrences, 0, occurrenceCount);
+        int added = 0;
+        int from = 0;
+        while (from < occurrenceCount) {
+            int number = (int) (occurrences[from] >>> 32);
+            int to = from + 1;
+            while (to < occurrenceCount && (int) (occurrences[to] >>> 32) == number) {
+                to++;
+            }
+            appendPosting(pageId, number, from, to);
+            if (pageCounts[number]++ == 0) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                }
+                touched[touchedCount++] = number;
+            }
+            added++;
+            from = to;
+        }
+        pages++;
+        return added;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getPages() {
+        return pages;
+    }
+
+    public int getPageId(int index) {
+        return pageIds[index];
+    }
+
+    /**
+     * @return database id of the posting's lemma, 0 until it is resolved
+     */
+    public int getLemmaId(int index) {
+        return databaseIds[lemmaNumbers[index]];
+    }
+
+    public int getFrequency(int index) {
+        return frequencies[index];
+    }
+
+    public byte[] getPositions(int index) {
+        return Arrays.copyOfRange(positions, index == 0 ? 0 : positionEnds[index - 1], positionEnds[index]);
+    }
+
+    /**
+     * Bytes the buffered postings take in the columns, for comparing with the per-posting objects this replaced.
+     */
+    public long getBufferedBytes() {
+        return (long) size * POSTING_BYTES + positionsLength;
+    }
+
+    /**
+     * Splits the number of buffered pages each lemma occurs on by whether its id is known: from earlier flushes
+     * or {@code knownIds} (0 = unknown) into {@code increments} by id, otherwise into the returned map
+     * by lemma, whose ids are then passed to {@link #resolve}.
+     */
+    public Map<String, Integer> collectFrequencies(ToIntFunction<String> knownIds, Map<Integer, Integer> increments) {
+        Map<String, Integer> unknown = new HashMap<>();
+        for (int i = 0; i < touchedCount; i++) {
+            int number = touched[i];
+            if (databaseIds[number] == 0) {
+                databaseIds[number] = knownIds.applyAsInt(lemmas.get(number));
+            }
+            if (databaseIds[number] == 0) {
+                unknown.put(lemmas.get(number), pageCounts[number]);
+            } else {
+                increments.merge(databaseIds[number], pageCounts[number], Integer::sum);
+            }
+        }
+        return unknown;
+    }
+
+    public void resolve(Map<String, Integer> ids) {
+        for (int i = 0; i < touchedCount; i++) {
+            int number = touched[i];
+            Integer id = ids.get(lemmas.get(number));
+            if (databaseIds[number] == 0 && id != null) {
+                databaseIds[number] = id;
+            }
+        }
+    }
+
+    /**
+     * @return database ids of the lemmas of the buffered postings
+     */
+    public Set<Integer> getLemmaIds() {
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < touchedCount; i++) {
+            ids.add(databaseIds[touched[i]]);
+        }
+        return ids;
+    }
+
+    /**
+     * Materializes the postings as entities for the repository write path.
+     */
+    public List<IndexTable> toIndexTables() {
+        Map<Integer, LemmaTable> lemmaTables = new HashMap<>();
+        Map<Integer, PageTable> pageTables = new HashMap<>();
+        List<IndexTable> indexTables = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            IndexTable indexTable = new IndexTable();
+            indexTable.setLemma(lemmaTables.computeIfAbsent(getLemmaId(i), id -> {
+                LemmaTable lemmaTable = new LemmaTable();
+                lemmaTable.setId(id);
+                return lemmaTable;
+            }));
+            indexTable.setPage(pageTables.computeIfAbsent(pageIds[i], id -> {
+                PageTable pageTable = new PageTable();
+                pageTable.setId(id);
+                return pageTable;
+            }));
+            indexTable.setRank(frequencies[i]);
+            indexTable.setPositions(getPositions(i));
+            indexTables.add(indexTable);
+        }
+        return indexTables;
+    }
+
+    public void clear() {
+        for (int i = 0; i < touchedCount; i++) {
+            pageCounts[touched[i]] = 0;
+        }
+        touchedCount = 0;
+        size = 0;
+        positionsLength = 0;
+        pages = 0;
+    }
+
+    private void addOccurrence(String lemma, int position) {
+        int number = lemmas.intern(lemma);
+        if (number == databaseIds.length) {
+            databaseIds = Arrays.copyOf(databaseIds, number * 2);
+            pageCounts = Arrays.copyOf(pageCounts, number * 2);
+        }
+        if (occurrenceCount == occurrences.length) {
+            occurrences = Arrays.copyOf(occurrences, occurrenceCount * 2);
+        }
+        occurrences[occurrenceCount++] = (long) number << 32 | position;
+    }
+
+    private void appendPosting(int pageId, int number, int from, int to) {
+        if (size == pageIds.length) {
+            pageIds = Arrays.copyOf(pageIds, size * 2);
+            lemmaNumbers = Arrays.copyOf(lemmaNumbers, size * 2);
+            frequencies = Arrays.copyOf(frequencies, size * 2);
+            positionEnds = Arrays.copyOf(positionEnds, size * 2);
+        }
+        int required = positionsLength + (to - from) * Varint.MAX_BYTES;
+        if (required > positions.length) {
+            positions = Arrays.copyOf(positions, Math.max(positions.length * 2, required));
+        }
+        int previous = 0;
+        for (int i = from; i < to; i++) {
+            int position = (int) occurrences[i];
+            positionsLength = Varint.write(positions, positionsLength, position - previous);
+            previous = position;
+        }
+        pageIds[size] = pageId;
+        lemmaNumbers[size] = number;
+        frequencies[size] = to - from;
+        positionEnds[size] = positionsLength;
+        size++;
+    }
+}
@@ -0,0 +1,110 @@
+package searchengine.services.indexing;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Postings of one lemma: ascending page ids with the lemma's frequency and word positions (see {@link Positions})
+ * on each page. Stored as one blob per lemma: the posting count, then per posting the varint distance from
+ * the previous page id, the varint frequency and the length-prefixed positions (length 0 = none recorded).
+ */
+public final class PostingList {
+    private final int[] pageIds;
+    private final int[] frequencies;
+    private final byte[][] positions;
+
+    private PostingList(int[] pageIds, int[] frequencies, byte[][] positions) {
+        this.pageIds = pageIds;
+        this.frequencies = frequencies;
+        this.positions = positions;
+    }
+
+    public int size() {
+        return pageIds.length;
+    }
+
+    public int[] getPageIds() {
+        return pageIds;
+    }
+
+    /**
+     * @return index of the page's posting, or a negative number if the lemma does not occur on it
+     */
+    public int indexOf(int pageId) {
+        return Arrays.binarySearch(pageIds, pageId);
+    }
+
+    public int getFrequency(int index) {
+        return frequencies[index];
+    }
+
+    public byte[] getPositions(int index) {
+        return positions[index];
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(pageIds.length * 4 + 4);
+        Varint.write(out, pageIds.length);
+        int previous = 0;
+        for (int i = 0; i < pageIds.length; i++) {
+            Varint.write(out, pageIds[i] - previous);
+            Varint.write(out, frequencies[i]);
+            if (positions[i] == null) {
+                Varint.write(out, 0);
+            } else {
+                Varint.write(out, positions[i].length + 1);
+                out.writeBytes(positions[i]);
+            }
+            previous = pageIds[i];
+        }
+        return out.toByteArray();
+    }
+
+    public static PostingList decode(byte[] data) {
+        int[] offset = {0};
+        int count = Varint.read(data, offset);
+        int[] pageIds = new int[count];
+        int[] frequencies = new int[count];
+        byte[][] positions = new byte[count][];
+        int previous = 0;
+        for (int i = 0; i < count; i++) {
+            previous += Varint.read(data, offset);
+            pageIds[i] = previous;
+            frequencies[i] = Varint.read(data, offset);
+            int length = Varint.read(data, offset);
+            if (length > 0) {
+                positions[i] = Arrays.copyOfRange(data, offset[0], offset[0] + length - 1);
+                offset[0] += length - 1;
+            }
+        }
+        return new PostingList(pageIds, frequencies, positions);
+    }
+
+    /**
+     * Collects postings given in ascending page order.
+     */
+    public static class Builder {
+        private int[] pageIds = new int[16];
+        private int[] frequencies = new int[16];
+        private byte[][] positions = new byte[16][];
+        private int size;
+
+        public Builder add(int pageId, int frequency, byte[] pagePositions) {
+            if (size == pageIds.length) {
+                pageIds = Arrays.copyOf(pageIds, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            pageIds[size] = pageId;
+            frequencies[size] = frequency;
+            positions[size] = pagePositions;
+            size++;
+            return this;
+        }
+
+        public PostingList build() {
+            return new PostingList(Arrays.copyOf(pageIds, size), Arrays.copyOf(frequencies, size),
+                    Arrays.copyOf(positions, size));
+        }
+    }
+}
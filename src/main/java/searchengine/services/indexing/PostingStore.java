@@ -0,0 +1,107 @@
+package searchengine.services.indexing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import searchengine.model.SiteTable;
+
+import javax.annotation.PostConstruct;
+import java.util.*;
+
+/**
+ * Read-side copy of the index: one {@link PostingList} blob per lemma in {@code lemma_postings}, so
+ * {@link InvertedIndex} loads a lemma's postings with a single row instead of materializing its
+ * {@code index_table} rows.
+ * <p>
+ * {@code index_table} stays the table the indexers update. Writers drop the blobs of the lemmas they touch
+ * ({@link #invalidate}, {@link #invalidatePages}); {@link #rebuildMissing} re-encodes them periodically
+ * during a crawl and once a job is done. Until then {@link #load} falls back to reading the rows, so a missing
+ * blob is only slower, never wrong.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+@Slf4j
+public class PostingStore {
+    private static final String UPSERT = "INSERT INTO lemma_postings (lemma_id, pages, data) VALUES (?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE pages = VALUES(pages), data = VALUES(data)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @PostConstruct
+    public void init() {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS lemma_postings ("
+                + "lemma_id INT NOT NULL PRIMARY KEY, "
+                + "pages INT NOT NULL, "
+                + "data LONGBLOB NOT NULL, "
+                + "CONSTRAINT fk_lemma_postings_lemma FOREIGN KEY (lemma_id) REFERENCES lemma (id) ON DELETE CASCADE)");
+    }
+
+    public void invalidate(Collection<Integer> lemmaIds) {
+        SqlChunks.forEach(lemmaIds, (placeholders, arguments) ->
+                jdbcTemplate.update("DELETE FROM lemma_postings WHERE lemma_id IN (" + placeholders + ")", arguments));
+    }
+
+    /**
+     * Drops the blobs of every lemma occurring on the pages; must run before their index rows are deleted.
+     */
+    public void invalidatePages(Collection<Integer> pageIds) {
+        SqlChunks.forEach(pageIds, (placeholders, arguments) ->
+                jdbcTemplate.update("DELETE p FROM lemma_postings p JOIN index_table i ON i.lemma_id = p.lemma_id "
+                        + "WHERE i.page_id IN (" + placeholders + ")", arguments));
+    }
+
+    /**
+     * Encodes the postings of the site's lemmas that have no blob.
+     *
+     * @return ids of the lemmas encoded
+     */
+    public List<Integer> rebuildMissing(SiteTable siteTable) {
+        List<Integer> lemmaIds = jdbcTemplate.queryForList("SELECT l.id FROM lemma l "
+                + "LEFT JOIN lemma_postings p ON p.lemma_id = l.id WHERE l.site_id = ? AND p.lemma_id IS NULL",
+                Integer.class, siteTable.getId());
+        long started = System.nanoTime();
+        SqlChunks.forEach(lemmaIds, (placeholders, arguments) -> {
+            List<Object[]> rows = new ArrayList<>();
+            readIndexRows(placeholders, arguments).forEach((lemmaId, postings) ->
+                    rows.add(new Object[]{lemmaId, postings.size(), postings.encode()}));
+            jdbcTemplate.batchUpdate(UPSERT, rows);
+        });
+        if (!lemmaIds.isEmpty()) {
+            log.info("Encoded postings of {} lemmas of {} in {} ms", lemmaIds.size(), siteTable.getUrl(),
+                    (System.nanoTime() - started) / 1_000_000);
+        }
+        return lemmaIds;
+    }
+
+    /**
+     * @return postings of each lemma that has any, read from its blob or, without one, from {@code index_table}
+     */
+    public Map<Integer, PostingList> load(Collection<Integer> lemmaIds) {
+        Map<Integer, PostingList> postings = new HashMap<>();
+        SqlChunks.forEach(lemmaIds, (placeholders, arguments) -> jdbcTemplate.query(
+                "SELECT lemma_id, data FROM lemma_postings WHERE lemma_id IN (" + placeholders + ")",
+                resultSet -> {
+                    postings.put(resultSet.getInt(1), PostingList.decode(resultSet.getBytes(2)));
+                }, arguments));
+        List<Integer> missing = lemmaIds.stream().filter(id -> !postings.containsKey(id)).toList();
+        SqlChunks.forEach(missing, (placeholders, arguments) ->
+                postings.putAll(readIndexRows(placeholders, arguments)));
+        return postings;
+    }
+
+    private Map<Integer, PostingList> readIndexRows(String placeholders, Object[] lemmaIds) {
+        Map<Integer, PostingList.Builder> builders = new HashMap<>();
+        jdbcTemplate.query("SELECT lemma_id, page_id, index_rank, positions FROM index_table "
+                        + "WHERE lemma_id IN (" + placeholders + ") ORDER BY lemma_id, page_id",
+                resultSet -> {
+                    builders.computeIfAbsent(resultSet.getInt(1), key -> new PostingList.Builder())
+                            .add(resultSet.getInt(2), Math.round(resultSet.getFloat(3)), resultSet.getBytes(4));
+                }, lemmaIds);
+        Map<Integer, PostingList> postings = new HashMap<>();
+        builders.forEach((lemmaId, builder) -> postings.put(lemmaId, builder.build()));
+        return postings;
+    }
+}
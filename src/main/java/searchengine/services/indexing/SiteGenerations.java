@@ -0,0 +1,94 @@
+package searchengine.services.indexing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import searchengine.model.SiteTable;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generations of a site's index. A full re-index builds its pages, lemmas and index rows under a new,
+ * non-live {@code site} row, which search ignores; {@link #promote} then flips the {@code live} flags
+ * in one transaction, so search switches from the complete old index to the complete new one.
+ * Replaced generations are deleted on a background thread with chunked bulk deletes, without loading
+ * anything into the persistence context.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SiteGenerations {
+    private static final int DROP_CHUNK = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService dropper = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "site-generation-drop");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Makes {@code generation} the searched one and schedules the generation it replaces for deletion.
+     */
+    public void promote(SiteTable generation) {
+        List<Integer> replaced = transactionTemplate.execute(status -> {
+            List<Integer> ids = jdbcTemplate.queryForList("SELECT id FROM site WHERE url = ? AND live = TRUE "
+                    + "AND id <> ? FOR UPDATE", Integer.class, generation.getUrl(), generation.getId());
+            jdbcTemplate.update("UPDATE site SET live = FALSE WHERE url = ? AND id <> ?",
+                    generation.getUrl(), generation.getId());
+            jdbcTemplate.update("UPDATE site SET live = TRUE WHERE id = ?", generation.getId());
+            return ids;
+        });
+        generation.setLive(true);
+        if (replaced != null) {
+            replaced.forEach(this::dropLater);
+        }
+    }
+
+    public void dropLater(int siteId) {
+        dropper.execute(() -> drop(siteId));
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        dropper.shutdown();
+        dropper.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private void drop(int siteId) {
+        long started = System.nanoTime();
+        int pages = 0;
+        try {
+            while (true) {
+                List<Integer> pageIds = jdbcTemplate.queryForList("SELECT id FROM page WHERE site_id = ? LIMIT ?",
+                        Integer.class, siteId, DROP_CHUNK);
+                if (pageIds.isEmpty()) {
+                    break;
+                }
+                String placeholders = String.join(", ", Collections.nCopies(pageIds.size(), "?"));
+                Object[] arguments = pageIds.toArray();
+                jdbcTemplate.update("DELETE FROM index_table WHERE page_id IN (" + placeholders + ")", arguments);
+                jdbcTemplate.update("DELETE FROM page WHERE id IN (" + placeholders + ")", arguments);
+                pages += pageIds.size();
+            }
+            int lemmas;
+            do {
+                lemmas = jdbcTemplate.update("DELETE FROM lemma WHERE site_id = ? LIMIT ?", siteId, DROP_CHUNK * 10);
+            } while (lemmas > 0);
+            jdbcTemplate.update("DELETE FROM crawl_checkpoint WHERE site_id = ?", siteId);
+            jdbcTemplate.update("DELETE FROM site WHERE id = ?", siteId);
+            log.info("Dropped site generation {}: {} pages in {} ms", siteId, pages,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (Exception exception) {
+            log.error("Failed to drop site generation {}: {}", siteId, exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package searchengine.services.indexing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Splits the values of an {@code IN (...)} clause into statements of at most {@value #SIZE} placeholders.
+ */
+final class SqlChunks {
+    static final int SIZE = 500;
+
+    private SqlChunks() {
+    }
+
+    /**
+     * Runs {@code statement} once per chunk with its placeholders ({@code "?, ?, ..."}) and values.
+     */
+    static void forEach(Collection<?> values, BiConsumer<String, Object[]> statement) {
+        List<?> all = new ArrayList<>(values);
+        for (int from = 0; from < all.size(); from += SIZE) {
+            List<?> chunk = all.subList(from, Math.min(from + SIZE, all.size()));
+            statement.accept(String.join(", ", Collections.nCopies(chunk.size(), "?")), chunk.toArray());
+        }
+    }
+}
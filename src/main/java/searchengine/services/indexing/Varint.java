@@ -0,0 +1,51 @@
+package searchengine.services.indexing;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Unsigned LEB128 ints, as used by {@link Positions} and {@link PostingList}: seven bits per byte, low bits
+ * first, the high bit set on every byte but the last.
+ */
+final class Varint {
+    static final int MAX_BYTES = 5;
+
+    private Varint() {
+    }
+
+    static void write(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Writes the value at {@code offset}, which must leave room for {@link #MAX_BYTES}.
+     *
+     * @return offset after the value
+     */
+    static int write(byte[] target, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            target[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[offset++] = (byte) value;
+        return offset;
+    }
+
+    /**
+     * Reads the value at {@code offset[0]} and advances it; a value cut off by the end of the data ends there.
+     */
+    static int read(byte[] data, int[] offset) {
+        int value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = data[offset[0]++];
+            value |= (current & 0x7F) << shift;
+            shift += 7;
+        } while ((current & 0x80) != 0 && offset[0] < data.length);
+        return value;
+    }
+}
@@ -0,0 +1,86 @@
+package searchengine.services.morphology;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Word form → lemmas cache shared by indexing and search threads. Entries are spread over independently
+ * locked LRU stripes, so threads lemmatizing different words rarely contend; the dictionary lookup itself
+ * runs outside the lock. Service words are cached as an empty list. A size of 0 disables caching.
+ */
+public class LemmaCache {
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    LemmaCache(int maxSize) {
+        int stripeCount = maxSize <= 0 ? 0 : Math.min(STRIPES, maxSize);
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(maxSize / stripeCount);
+        }
+    }
+
+    List<String> get(String word, Function<String, List<String>> loader) {
+        if (stripes.length == 0) {
+            misses.increment();
+            return loader.apply(word);
+        }
+        Stripe stripe = stripes[(word.hashCode() & Integer.MAX_VALUE) % stripes.length];
+        List<String> lemmas;
+        synchronized (stripe) {
+            lemmas = stripe.get(word);
+        }
+        if (lemmas != null) {
+            hits.increment();
+            return lemmas;
+        }
+        misses.increment();
+        lemmas = List.copyOf(loader.apply(word));
+        synchronized (stripe) {
+            stripe.put(word, lemmas);
+        }
+        return lemmas;
+    }
+
+    CacheStats getStats() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    private class Stripe extends LinkedHashMap<String, List<String>> {
+        private final int capacity;
+
+        private Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = Math.max(capacity, 1);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    public record CacheStats(long hits, long misses, long evictions, int size) {
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+}
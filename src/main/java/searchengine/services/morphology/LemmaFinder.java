@@ -2,8 +2,21 @@ package searchengine.services.morphology;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
 
 public interface LemmaFinder {
     HashMap<String, Integer> collectLemmas(String text);
+
+    /**
+     * Word positions (ascending, counting every word of the text) at which each lemma occurs.
+     */
+    Map<String, List<Integer>> collectLemmaPositions(String text);
+
+    /**
+     * Hands every lemma occurrence of the text to {@code consumer} in text order, with the position of its word;
+     * nothing is collected.
+     */
+    void forEachLemma(String text, ObjIntConsumer<String> consumer);
     List<String> getLemma(String word);
 }
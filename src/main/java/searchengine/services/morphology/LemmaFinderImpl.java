@@ -1,76 +1,90 @@
 package searchengine.services.morphology;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
-import org.apache.logging.log4j.Marker;
-import org.apache.logging.log4j.MarkerManager;
-import org.apache.lucene.morphology.LuceneMorphology;
-import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
 import org.springframework.stereotype.Component;
+import searchengine.properties.MorphologySettings;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Locale;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
 
+/**
+ * Words are looked up in the compiled {@link WordFormDictionary} when one is configured, straight from
+ * the tokenizer's buffer; forms it does not contain (or every form, without a dictionary) go through
+ * the {@link LemmaCache} to the Lucene morphologies.
+ */
 @Slf4j
 @Component
 public class LemmaFinderImpl implements LemmaFinder {
-    private static RussianLuceneMorphology russianLuceneMorphology;
-    private static final String REGEX = "\\p{Punct}|[0-9]|№|©|◄|«|»|—|-|@|…";
-    private static final Marker INVALID_SYMBOL_MARKER = MarkerManager.getMarker("INVALID_SYMBOL");
-    private static final Logger LOGGER = LogManager.getLogger(LuceneMorphology.class);
+    private final LemmaCache cache;
+    private final WordFormDictionary dictionary;
 
-    static {
-        try {
-            russianLuceneMorphology = new RussianLuceneMorphology();
-        } catch (Exception e) {
-            LOGGER.error(e.getMessage());
-        }
+    public LemmaFinderImpl(MorphologySettings settings) {
+        this.cache = new LemmaCache(settings.getCacheSize());
+        this.dictionary = openDictionary(settings.getDictionary());
     }
 
     @Override
     public HashMap<String, Integer> collectLemmas(String content) {
-        content = content.toLowerCase(Locale.ROOT)
-                .replaceAll(REGEX, " ");
         HashMap<String, Integer> lemmaList = new HashMap<>();
-        String[] elements = content.toLowerCase(Locale.ROOT).split("\\s+");
-        for (String element : elements) {
-            List<String> wordsList = getLemma(element);
-            for (String word : wordsList) {
-                int count = lemmaList.getOrDefault(word, 0);
-                lemmaList.put(word, count + 1);
-            }
-        }
+        forEachLemma(content, (word, position) -> lemmaList.merge(word, 1, Integer::sum));
         return lemmaList;
     }
 
+    @Override
+    public Map<String, List<Integer>> collectLemmaPositions(String content) {
+        Map<String, List<Integer>> positions = new HashMap<>();
+        forEachLemma(content, (word, position) ->
+                positions.computeIfAbsent(word, key -> new ArrayList<>()).add(position));
+        return positions;
+    }
+
+    @Override
+    public void forEachLemma(String text, ObjIntConsumer<String> consumer) {
+        Tokenizer.tokenize(text, (buffer, length, position) -> forEachLemma(buffer, length, position, consumer));
+    }
+
+    /**
+     * @return lemmas of the word form, empty for service words and unknown forms; the list is shared, do not modify
+     */
     public List<String> getLemma(String word) {
-        List<String> lemmaList = new ArrayList<>();
-        try {
-            List<String> baseRusForm = russianLuceneMorphology.getNormalForms(word);
-            if (!isServiceWord(word)) {
-                lemmaList.addAll(baseRusForm);
+        return cache.get(word, LuceneLemmatizer::lemmas);
+    }
+
+    public LemmaCache.CacheStats getCacheStats() {
+        return cache.getStats();
+    }
+
+    private void forEachLemma(char[] buffer, int length, int position, ObjIntConsumer<String> consumer) {
+        if (dictionary != null) {
+            int entry = dictionary.find(buffer, length);
+            if (entry >= 0) {
+                for (int i = 0, count = dictionary.getLemmaCount(entry); i < count; i++) {
+                    consumer.accept(dictionary.getLemma(entry, i), position);
+                }
+                return;
             }
-        } catch (Exception e) {
-            LOGGER.debug(INVALID_SYMBOL_MARKER, "Символ не найден - " + word);
         }
-        return lemmaList;
+        for (String word : getLemma(new String(buffer, 0, length))) {
+            consumer.accept(word, position);
+        }
     }
 
-    private boolean isServiceWord(String word) {
-        List<String> morphForm = russianLuceneMorphology.getMorphInfo(word);
-        for (String l : morphForm) {
-            if (l.contains("ПРЕДЛ")
-                    || l.contains("СОЮЗ")
-                    || l.contains("МЕЖД")
-                    || l.contains("МС")
-                    || l.contains("ЧАСТ")
-                    || l.length() <= 3) {
-                return true;
-            }
+    private static WordFormDictionary openDictionary(String path) {
+        if (path == null || path.isBlank()) {
+            return null;
+        }
+        try {
+            WordFormDictionary dictionary = WordFormDictionary.open(Path.of(path));
+            log.info("Word form dictionary {} mapped: {} lemmas", path, dictionary.getLemmaCount());
+            return dictionary;
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Word form dictionary {} not used: {}", path, e.getMessage());
+            return null;
         }
-        return false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,103 @@
+package searchengine.services.morphology;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.apache.lucene.morphology.LuceneMorphology;
+import org.apache.lucene.morphology.english.EnglishLuceneMorphology;
+import org.apache.lucene.morphology.russian.RussianLuceneMorphology;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Lemmatization through the Lucene morphologies, routed by {@link Script}; words no dictionary can take
+ * are dropped up front, so the morphologies are never handed input they would reject with an exception.
+ * Each morphology is loaded on first use, so with a {@link WordFormDictionary} covering the texts
+ * it may never be loaded at all.
+ */
+final class LuceneLemmatizer {
+    private static final Set<String> ENGLISH_SERVICE_WORDS = Set.of(
+            "a", "an", "the", "and", "or", "but", "nor", "so", "yet", "if", "than", "then",
+            "of", "in", "on", "at", "to", "for", "with", "by", "from", "as", "into", "onto", "over", "under",
+            "about", "above", "below", "between", "through", "during", "before", "after", "up", "down", "out", "off",
+            "i", "you", "he", "she", "it", "we", "they", "me", "him", "her", "us", "them",
+            "my", "your", "his", "its", "our", "their", "this", "that", "these", "those",
+            "who", "whom", "whose", "which", "what", "not", "no", "oh", "ah");
+    private static final Marker INVALID_SYMBOL_MARKER = MarkerManager.getMarker("INVALID_SYMBOL");
+    private static final Logger LOGGER = LogManager.getLogger(LuceneMorphology.class);
+
+    private LuceneLemmatizer() {
+    }
+
+    /**
+     * @return lemmas of the lower-case word form, empty for service words and forms no dictionary knows
+     */
+    static List<String> lemmas(String word) {
+        try {
+            return switch (Script.of(word)) {
+                case CYRILLIC -> russianLemmas(word.replace('ё', 'е'));
+                case LATIN -> englishLemmas(word);
+                case OTHER -> List.of();
+            };
+        } catch (RuntimeException e) {
+            LOGGER.debug(INVALID_SYMBOL_MARKER, "Символ не найден - " + word);
+            return List.of();
+        }
+    }
+
+    private static List<String> russianLemmas(String word) {
+        RussianLuceneMorphology morphology = Russian.MORPHOLOGY;
+        if (morphology == null || !morphology.checkString(word) || isRussianServiceWord(word)) {
+            return List.of();
+        }
+        return morphology.getNormalForms(word);
+    }
+
+    private static List<String> englishLemmas(String word) {
+        EnglishLuceneMorphology morphology = English.MORPHOLOGY;
+        if (morphology == null || word.length() < 2 || ENGLISH_SERVICE_WORDS.contains(word)
+                || !morphology.checkString(word)) {
+            return List.of();
+        }
+        return morphology.getNormalForms(word);
+    }
+
+    private static boolean isRussianServiceWord(String word) {
+        RussianLuceneMorphology morphology = Russian.MORPHOLOGY;
+        if (morphology == null || !morphology.checkString(word)) {
+            return false;
+        }
+        List<String> morphForm = morphology.getMorphInfo(word);
+        for (String l : morphForm) {
+            if (l.contains("ПРЕДЛ")
+                    || l.contains("СОЮЗ")
+                    || l.contains("МЕЖД")
+                    || l.contains("МС")
+                    || l.contains("ЧАСТ")
+                    || l.length() <= 3) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> T load(Callable<T> loader) {
+        try {
+            return loader.call();
+        } catch (Exception e) {
+            LOGGER.error(e.getMessage());
+            return null;
+        }
+    }
+
+    private static final class Russian {
+        private static final RussianLuceneMorphology MORPHOLOGY = load(RussianLuceneMorphology::new);
+    }
+
+    private static final class English {
+        private static final EnglishLuceneMorphology MORPHOLOGY = load(EnglishLuceneMorphology::new);
+    }
+}
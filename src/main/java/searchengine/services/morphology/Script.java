@@ -0,0 +1,26 @@
+package searchengine.services.morphology;
+
+/**
+ * Alphabet of a lower-case word, deciding which morphology handles it. Words mixing alphabets
+ * or containing letters of other scripts are {@link #OTHER} and are not lemmatized.
+ */
+enum Script {
+    CYRILLIC,
+    LATIN,
+    OTHER;
+
+    static Script of(String word) {
+        Script script = null;
+        for (int i = 0; i < word.length(); i++) {
+            char letter = word.charAt(i);
+            Script current = letter >= 'а' && letter <= 'я' || letter == 'ё' ? CYRILLIC
+                    : letter >= 'a' && letter <= 'z' ? LATIN
+                    : OTHER;
+            if (current == OTHER || script != null && script != current) {
+                return OTHER;
+            }
+            script = current;
+        }
+        return script == null ? OTHER : script;
+    }
+}
@@ -0,0 +1,41 @@
+package searchengine.services.morphology;
+
+import java.util.Arrays;
+
+/**
+ * Splits text into lower-case words in a single pass over its characters: a word is a run of letters
+ * (Cyrillic, Latin or any other script), everything else - digits, punctuation, symbols, whitespace - separates
+ * words. Words are handed over in a reused buffer, so tokenizing allocates nothing per word.
+ */
+final class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    /**
+     * Passes every word with its position (0, 1, 2, ...) to {@code consumer}; the buffer is only valid
+     * during the call.
+     */
+    static void tokenize(CharSequence text, WordConsumer consumer) {
+        char[] buffer = new char[32];
+        int length = 0;
+        int position = 0;
+        for (int i = 0, end = text.length(); i <= end; i++) {
+            char current = i < end ? text.charAt(i) : ' ';
+            if (Character.isLetter(current)) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, length * 2);
+                }
+                buffer[length++] = Character.toLowerCase(current);
+            } else if (length > 0) {
+                consumer.accept(buffer, length, position++);
+                length = 0;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    interface WordConsumer {
+        void accept(char[] buffer, int length, int position);
+    }
+}
@@ -0,0 +1,200 @@
+package searchengine.services.morphology;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Word form → lemmas lookup table compiled ahead of time by {@code WordFormDictionaryCompiler} (the
+ * {@code word-forms} build profile) and memory-mapped read-only, so its pages live in the OS page cache and are
+ * shared by every JVM using the file.
+ * <p>
+ * It is a precomputed cache for one corpus, not a full lexicon: the Lucene morphologies resolve forms by
+ * suffix rules and cannot list the forms they accept, so the file holds exactly the forms of the texts it was
+ * compiled from, including those without lemmas (service words), and every other form falls back to the
+ * morphologies. Lookups hash the word's characters straight from the tokenizer's buffer and probe
+ * an open-addressing table inside the mapping, allocating nothing; each distinct lemma is stored once and its
+ * String created on first use.
+ * <p>
+ * Layout (big-endian): header {@code magic, version, lemmaCount, lemmaChars, slotCount, entryBytes};
+ * {@code lemmaCount + 1} lemma offsets into the lemma chars; the lemma chars (UTF-16);
+ * {@code slotCount} slots holding an entry offset or -1; the entries, each
+ * {@code short length, char[length] form, byte lemmaCount, int[lemmaCount]} indexes into the lemma offsets.
+ */
+final class WordFormDictionary {
+    private static final int MAGIC = 0x4C444943;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 6 * Integer.BYTES;
+
+    private final ByteBuffer buffer;
+    private final int lemmaCount;
+    private final int lemmaOffsetsStart;
+    private final int lemmaCharsStart;
+    private final int slotsStart;
+    private final int entriesStart;
+    private final int slotMask;
+    private final AtomicReferenceArray<String> lemmas;
+
+    private WordFormDictionary(ByteBuffer buffer) {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not a word form dictionary");
+        }
+        this.buffer = buffer;
+        this.lemmaCount = buffer.getInt(8);
+        int lemmaChars = buffer.getInt(12);
+        int slotCount = buffer.getInt(16);
+        this.lemmaOffsetsStart = HEADER_BYTES;
+        this.lemmaCharsStart = lemmaOffsetsStart + (lemmaCount + 1) * Integer.BYTES;
+        this.slotsStart = lemmaCharsStart + lemmaChars * Character.BYTES;
+        this.entriesStart = slotsStart + slotCount * Integer.BYTES;
+        this.slotMask = slotCount - 1;
+        this.lemmas = new AtomicReferenceArray<>(lemmaCount);
+    }
+
+    static WordFormDictionary open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new WordFormDictionary(mapped);
+        }
+    }
+
+    /**
+     * @return offset of the entry for the word, or -1 if the dictionary does not contain it
+     */
+    int find(char[] word, int length) {
+        int slot = hash(word, length) & slotMask;
+        while (true) {
+            int entry = buffer.getInt(slotsStart + slot * Integer.BYTES);
+            if (entry < 0) {
+                return -1;
+            }
+            if (matches(entriesStart + entry, word, length)) {
+                return entriesStart + entry;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    int getLemmaCount(int entry) {
+        return buffer.get(lemmasOffset(entry));
+    }
+
+    String getLemma(int entry, int index) {
+        int lemma = buffer.getInt(lemmasOffset(entry) + 1 + index * Integer.BYTES);
+        String cached = lemmas.get(lemma);
+        if (cached == null) {
+            int from = buffer.getInt(lemmaOffsetsStart + lemma * Integer.BYTES);
+            int to = buffer.getInt(lemmaOffsetsStart + (lemma + 1) * Integer.BYTES);
+            char[] chars = new char[to - from];
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = buffer.getChar(lemmaCharsStart + (from + i) * Character.BYTES);
+            }
+            cached = new String(chars);
+            lemmas.compareAndSet(lemma, null, cached);
+        }
+        return cached;
+    }
+
+    int getLemmaCount() {
+        return lemmaCount;
+    }
+
+    private int lemmasOffset(int entry) {
+        return entry + Short.BYTES + buffer.getShort(entry) * Character.BYTES;
+    }
+
+    private boolean matches(int entry, char[] word, int length) {
+        if (buffer.getShort(entry) != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer.getChar(entry + Short.BYTES + i * Character.BYTES) != word[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static int hash(char[] word, int length) {
+        int hash = 0x811C9DC5;
+        for (int i = 0; i < length; i++) {
+            hash = (hash ^ word[i]) * 0x01000193;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Writes a dictionary of the given word forms and their lemmas; forms longer than {@link Short#MAX_VALUE}
+     * or with more than 127 lemmas are not expected from the tokenizer and morphologies and are skipped.
+     */
+    static void write(Map<String, List<String>> forms, OutputStream target) throws IOException {
+        TreeSet<String> lemmaSet = new TreeSet<>();
+        forms.values().forEach(lemmaSet::addAll);
+        List<String> lemmaList = new ArrayList<>(lemmaSet);
+        Map<String, Integer> lemmaIndexes = new HashMap<>();
+        for (int i = 0; i < lemmaList.size(); i++) {
+            lemmaIndexes.put(lemmaList.get(i), i);
+        }
+
+        SortedMap<String, List<String>> sorted = new TreeMap<>(forms);
+        sorted.entrySet().removeIf(form -> form.getKey().length() > Short.MAX_VALUE
+                || form.getValue().size() > 127);
+        int slotCount = Integer.highestOneBit(Math.max(sorted.size() * 2, 2) - 1) << 1;
+        int[] slots = new int[slotCount];
+        Arrays.fill(slots, -1);
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        DataOutputStream entryOut = new DataOutputStream(entries);
+        for (Map.Entry<String, List<String>> form : sorted.entrySet()) {
+            char[] chars = form.getKey().toCharArray();
+            int slot = hash(chars, chars.length) & (slotCount - 1);
+            while (slots[slot] >= 0) {
+                slot = (slot + 1) & (slotCount - 1);
+            }
+            slots[slot] = entries.size();
+            entryOut.writeShort(chars.length);
+            entryOut.writeChars(form.getKey());
+            entryOut.writeByte(form.getValue().size());
+            for (String lemma : form.getValue()) {
+                entryOut.writeInt(lemmaIndexes.get(lemma));
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream(target);
+        int lemmaChars = lemmaList.stream().mapToInt(String::length).sum();
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(lemmaList.size());
+        out.writeInt(lemmaChars);
+        out.writeInt(slotCount);
+        out.writeInt(entries.size());
+        int offset = 0;
+        for (String lemma : lemmaList) {
+            out.writeInt(offset);
+            offset += lemma.length();
+        }
+        out.writeInt(offset);
+        for (String lemma : lemmaList) {
+            out.writeChars(lemma);
+        }
+        for (int slot : slots) {
+            out.writeInt(slot);
+        }
+        entries.writeTo(out);
+        out.flush();
+    }
+}
@@ -0,0 +1,117 @@
+package searchengine.services.parsing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import searchengine.properties.CrawlerSettings;
+import searchengine.repository.PageValidators;
+
+import javax.annotation.PreDestroy;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Non-blocking fetch engine: requests are multiplexed by {@link HttpClient} on a handful of
+ * threads, and the CPU-bound Jsoup parsing runs on a separate pool sized to the cores.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(prefix = "indexing-settings.crawler", name = "fetcher", havingValue = "async")
+public class AsyncHttpPageFetcher implements PageFetcher {
+    private final CrawlerSettings settings;
+    private final ExecutorService networkPool;
+    private final ExecutorService parsePool;
+    private final HttpClient client;
+
+    public AsyncHttpPageFetcher(CrawlerSettings settings) {
+        this.settings = settings;
+        this.networkPool = Executors.newFixedThreadPool(Math.max(settings.getNetworkThreads(), 1));
+        this.parsePool = Executors.newFixedThreadPool(settings.getParseThreads() > 0
+                ? settings.getParseThreads()
+                : Runtime.getRuntime().availableProcessors());
+        this.client = HttpClient.newBuilder()
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .connectTimeout(Duration.ofMillis(settings.getTimeout()))
+                .executor(networkPool)
+                .build();
+    }
+
+    @Override
+    public CompletableFuture<FetchResult> fetch(String url, PageValidators known) {
+        HttpRequest.Builder request;
+        try {
+            request = HttpRequest.newBuilder(toUri(url))
+                    .timeout(Duration.ofMillis(settings.getTimeout()))
+                    .header("User-Agent", settings.getUserAgent())
+                    .GET();
+        } catch (URISyntaxException | IOException | IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (known != null && known.getEtag() != null) {
+            request.header("If-None-Match", known.getEtag());
+        }
+        if (known != null && known.getLastModified() != null) {
+            request.header("If-Modified-Since", known.getLastModified());
+        }
+        return client.sendAsync(request.build(), LimitedBodySubscriber.handler(settings.getMaxBodySize()))
+                .thenApplyAsync(this::toResult, parsePool);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        networkPool.shutdownNow();
+        parsePool.shutdownNow();
+    }
+
+    private FetchResult toResult(HttpResponse<byte[]> response) {
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        String lastModified = response.headers().firstValue("Last-Modified").orElse(null);
+        String contentType = response.headers().firstValue("Content-Type").orElse(null);
+        if (response.body() == null) {
+            return new FetchResult(response.statusCode(), etag, lastModified, contentType, null);
+        }
+        String charset = contentType == null ? null : charsetOf(contentType);
+        try {
+            Document document = Jsoup.parse(new ByteArrayInputStream(response.body()), charset,
+                    response.uri().toString());
+            return new FetchResult(response.statusCode(), etag, lastModified, contentType, document);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String charsetOf(String contentType) {
+        for (String parameter : contentType.split(";")) {
+            String trimmed = parameter.trim();
+            if (trimmed.toLowerCase(Locale.ROOT).startsWith("charset=")) {
+                return trimmed.substring("charset=".length()).replace("\"", "").trim();
+            }
+        }
+        return null;
+    }
+
+    private URI toUri(String url) throws URISyntaxException, IOException {
+        try {
+            return URI.create(url);
+        } catch (IllegalArgumentException e) {
+            URL parsed = new URL(url);
+            URI uri = new URI(parsed.getProtocol(), parsed.getUserInfo(), parsed.getHost(), parsed.getPort(),
+                    parsed.getPath(), parsed.getQuery(), null);
+            return URI.create(uri.toASCIIString());
+        }
+    }
+}
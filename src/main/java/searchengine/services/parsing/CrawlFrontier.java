@@ -0,0 +1,204 @@
+package searchengine.services.parsing;
+
+import searchengine.repository.PageValidators;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Crawl of one site: hands its fetches to the shared {@link CrawlScheduler}, remembers which URLs
+ * were already queued and tracks how many are still outstanding so the caller can wait for the site to finish.
+ * Pages stored by the previous crawl are kept here with their HTTP validators, so a re-crawl can ask
+ * the server whether they changed.
+ * <p>
+ * URLs stay in the pending set until their task has run, so a snapshot of pending and visited URLs
+ * is enough to continue an interrupted crawl later (see {@link #restore}).
+ */
+public class CrawlFrontier {
+    private final CrawlScheduler scheduler;
+    private final String siteUrl;
+    private final long hostDelay;
+    private final int hostConcurrency;
+    private final ExcludedExtensions excludedExtensions;
+    private final VisitedUrls visited = new VisitedUrls();
+    private final Map<String, PageValidators> knownPages = new ConcurrentHashMap<>();
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final Object idle = new Object();
+    private final long startedAt = System.nanoTime();
+    private volatile RobotsRules robots = RobotsRules.ALLOW_ALL;
+    private volatile boolean cancelled;
+
+    CrawlFrontier(CrawlScheduler scheduler, String siteUrl, long hostDelay, int hostConcurrency,
+                  ExcludedExtensions excludedExtensions) {
+        this.scheduler = scheduler;
+        this.siteUrl = siteUrl;
+        this.hostDelay = hostDelay;
+        this.hostConcurrency = hostConcurrency;
+        this.excludedExtensions = excludedExtensions;
+    }
+
+    public boolean submit(String url, CrawlTask task) {
+        if (cancelled || excludedExtensions.matches(url) || !robots.isAllowed(url) || !visited.add(url)) {
+            return false;
+        }
+        outstanding.incrementAndGet();
+        pending.add(url);
+        scheduler.schedule(url, () -> {
+            if (cancelled) {
+                complete();
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletionStage<?> stage;
+            try {
+                stage = task.start();
+            } catch (RuntimeException exception) {
+                pending.remove(url);
+                complete();
+                throw exception;
+            }
+            return stage.whenComplete((result, exception) -> {
+                pending.remove(url);
+                complete();
+            });
+        }, hostDelay, hostConcurrency);
+        return true;
+    }
+
+    /**
+     * Continues a crawl from a checkpoint. Visited URLs whose page is stored are marked as done;
+     * the others (in flight or still in the indexing queue when the crawl stopped) are fetched again
+     * together with the pending ones. Must be called after {@link #addKnownPages}.
+     *
+     * @return number of URLs queued
+     */
+    public int restore(Collection<String> visitedUrls, Collection<String> pendingUrls,
+                       Function<String, CrawlTask> taskFactory) {
+        List<String> queue = new ArrayList<>(pendingUrls);
+        for (String url : visitedUrls) {
+            if (knownPages.remove(UrlNormalizer.normalize(url)) != null) {
+                visited.add(url);
+            } else {
+                queue.add(url);
+            }
+        }
+        int queued = 0;
+        for (String url : queue) {
+            if (submit(url, taskFactory.apply(url))) {
+                queued++;
+            }
+        }
+        return queued;
+    }
+
+    /**
+     * Pending URLs are read before the visited ones, so a URL queued in between ends up among
+     * the visited and is fetched again on restore rather than lost.
+     */
+    public Snapshot snapshot() {
+        List<String> pendingUrls = new ArrayList<>(pending);
+        Set<String> visitedUrls = new HashSet<>(visited.snapshot());
+        pendingUrls.forEach(url -> visitedUrls.remove(UrlNormalizer.normalize(url)));
+        return new Snapshot(pendingUrls, new ArrayList<>(visitedUrls));
+    }
+
+    public void setRobotsRules(RobotsRules robots) {
+        this.robots = robots;
+    }
+
+    public int getVisitedCount() {
+        return visited.size();
+    }
+
+    public void addKnownPages(Collection<PageValidators> pages) {
+        pages.forEach(page -> knownPages.put(UrlNormalizer.normalize(siteUrl + page.getPath()), page));
+    }
+
+    public PageValidators takeKnownPage(String url) {
+        return knownPages.remove(UrlNormalizer.normalize(url));
+    }
+
+    public List<PageValidators> getUnvisitedKnownPages() {
+        return new ArrayList<>(knownPages.values());
+    }
+
+    public void recordFetch(String url) {
+        visited.recordFetch(url);
+    }
+
+    public int getFetchCount(String url) {
+        return visited.getFetchCount(url);
+    }
+
+    public FetchStats getFetchStats() {
+        return visited.getStats();
+    }
+
+    long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+    }
+
+    String getSiteUrl() {
+        return siteUrl;
+    }
+
+    /**
+     * Waits until every submitted URL is done or the crawl is cancelled. A scheduler stopped without
+     * cancelling this frontier counts as a cancel, since nothing would run its queued tasks. The count of
+     * outstanding URLs may drop to zero and rise again while URLs are still being submitted (the root page can
+     * finish before the sitemap seeds are queued), so it is re-checked on every wake-up.
+     */
+    public void await() throws InterruptedException {
+        try {
+            synchronized (idle) {
+                while (outstanding.get() > 0 && !cancelled) {
+                    if (!scheduler.isRunning()) {
+                        cancel();
+                        break;
+                    }
+                    idle.wait(1000);
+                }
+            }
+            if (cancelled) {
+                throw new CancellationException("Индексация остановлена пользователем");
+            }
+        } finally {
+            scheduler.close(this);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void cancel() {
+        cancelled = true;
+        wakeUp();
+    }
+
+    private void complete() {
+        if (outstanding.decrementAndGet() == 0) {
+            wakeUp();
+        }
+    }
+
+    private void wakeUp() {
+        synchronized (idle) {
+            idle.notifyAll();
+        }
+    }
+
+    public record Snapshot(List<String> pending, List<String> visited) {
+    }
+}
@@ -0,0 +1,144 @@
+package searchengine.services.parsing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.properties.CrawlerSettings;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * Shared pool of fetch workers. Instead of sleeping between requests, every worker takes the next
+ * host slot whose politeness delay has expired, so a slow host never blocks the others.
+ * A slot is returned when its task's stage completes, not when the worker is done with it, so an
+ * asynchronous fetcher can keep up to {@code max-in-flight} requests open with only a few workers.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CrawlScheduler {
+    private final CrawlerSettings settings;
+    private final Map<String, HostQueue> hosts = new ConcurrentHashMap<>();
+    private final Map<String, CrawlFrontier> frontiers = new ConcurrentHashMap<>();
+    private final Map<String, FetchStats> lastFetchStats = new ConcurrentHashMap<>();
+    private final DelayQueue<HostQueue.Slot> ready = new DelayQueue<>();
+    private ExecutorService workers;
+
+    public synchronized void start() {
+        if (isRunning()) {
+            return;
+        }
+        ready.clear();
+        hosts.clear();
+        Semaphore permits = new Semaphore(Math.max(settings.getMaxInFlight(), 1));
+        int workerCount = Math.max(settings.getWorkers(), 1);
+        workers = Executors.newFixedThreadPool(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(() -> work(permits));
+        }
+    }
+
+    public synchronized void stop() {
+        if (workers != null) {
+            workers.shutdownNow();
+            workers = null;
+        }
+        hosts.values().forEach(HostQueue::clear);
+        ready.clear();
+        frontiers.values().forEach(CrawlFrontier::cancel);
+        frontiers.values().forEach(this::close);
+    }
+
+    public synchronized boolean isRunning() {
+        return workers != null && !workers.isShutdown();
+    }
+
+    /**
+     * Opens the crawl of a site. A frontier opened while the scheduler is stopped (a stop that raced
+     * with the site's setup) comes back cancelled, so its {@link CrawlFrontier#await} returns at once.
+     */
+    public synchronized CrawlFrontier openFrontier(String siteUrl, Long hostDelay, Integer hostConcurrency) {
+        long delay = hostDelay != null ? hostDelay : settings.getHostDelay();
+        int concurrency = hostConcurrency != null ? hostConcurrency : settings.getHostConcurrency();
+        CrawlFrontier frontier = new CrawlFrontier(this, siteUrl, delay, concurrency,
+                new ExcludedExtensions(settings.getExcludedExtensions()));
+        frontiers.put(siteUrl, frontier);
+        if (!isRunning()) {
+            frontier.cancel();
+        }
+        return frontier;
+    }
+
+    public FetchStats getFetchStats(String siteUrl) {
+        CrawlFrontier frontier = frontiers.get(siteUrl);
+        return frontier != null ? frontier.getFetchStats() : lastFetchStats.get(siteUrl);
+    }
+
+    void close(CrawlFrontier frontier) {
+        if (frontiers.remove(frontier.getSiteUrl(), frontier)) {
+            FetchStats stats = frontier.getFetchStats();
+            lastFetchStats.put(frontier.getSiteUrl(), stats);
+            long elapsed = Math.max(frontier.getElapsedMillis(), 1);
+            log.info("Crawl of {} finished in {} ms with {} fetcher: {} urls, {} fetches ({} per second), "
+                            + "{} fetched more than once",
+                    frontier.getSiteUrl(), elapsed, settings.getFetcher(), stats.getUrls(), stats.getFetches(),
+                    String.format("%.1f", stats.getFetches() * 1000.0 / elapsed), stats.getRefetchedUrls());
+        }
+    }
+
+    void schedule(String url, CrawlTask task, long delay, int concurrency) {
+        HostQueue hostQueue = hosts.computeIfAbsent(hostOf(url),
+                host -> new HostQueue(delay, concurrency));
+        HostQueue.Slot slot = hostQueue.offer(task);
+        if (slot != null) {
+            ready.add(slot);
+        }
+    }
+
+    private void work(Semaphore permits) {
+        while (!Thread.currentThread().isInterrupted()) {
+            HostQueue.Slot slot;
+            try {
+                slot = ready.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            CrawlTask task = slot.getHostQueue().pollOrPark();
+            if (task == null) {
+                continue;
+            }
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            CompletionStage<?> stage;
+            try {
+                stage = task.start();
+            } catch (Exception exception) {
+                stage = CompletableFuture.failedFuture(exception);
+            }
+            stage.whenComplete((result, exception) -> {
+                if (exception != null) {
+                    log.error(exception.getMessage());
+                }
+                permits.release();
+                ready.add(slot.release());
+            });
+        }
+    }
+
+    private String hostOf(String url) {
+        try {
+            String host = URI.create(url).getHost();
+            return host == null ? url : host.toLowerCase(Locale.ROOT);
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+}
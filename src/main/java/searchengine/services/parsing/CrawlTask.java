@@ -0,0 +1,12 @@
+package searchengine.services.parsing;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Unit of work scheduled on a host slot. The slot stays taken until the returned stage completes,
+ * so a task may finish asynchronously without holding a worker thread.
+ */
+@FunctionalInterface
+public interface CrawlTask {
+    CompletionStage<?> start();
+}
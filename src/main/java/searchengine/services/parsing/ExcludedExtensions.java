@@ -0,0 +1,38 @@
+package searchengine.services.parsing;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * File extensions that are never queued, taken from {@code indexing-settings.crawler.excluded-extensions}.
+ * Lookup is a set probe on the last path segment, so no pattern is evaluated per link.
+ */
+public class ExcludedExtensions {
+    private final Set<String> extensions = new HashSet<>();
+
+    public ExcludedExtensions(Collection<String> configured) {
+        for (String extension : configured) {
+            String trimmed = extension.trim().toLowerCase(Locale.ROOT);
+            extensions.add(trimmed.startsWith(".") ? trimmed.substring(1) : trimmed);
+        }
+    }
+
+    public boolean matches(String url) {
+        int end = url.length();
+        for (int i = url.indexOf("://") + 3; i < url.length(); i++) {
+            char c = url.charAt(i);
+            if (c == '?' || c == '#') {
+                end = i;
+                break;
+            }
+        }
+        int slash = url.lastIndexOf('/', end - 1);
+        int dot = url.lastIndexOf('.', end - 1);
+        if (dot <= slash || dot == end - 1) {
+            return false;
+        }
+        return extensions.contains(url.substring(dot + 1, end).toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,26 @@
+package searchengine.services.parsing;
+
+import lombok.Value;
+import org.jsoup.nodes.Document;
+
+@Value
+public class FetchResult {
+    public static final int NOT_MODIFIED = 304;
+
+    int statusCode;
+    String etag;
+    String lastModified;
+    String contentType;
+    Document document;
+
+    public boolean isNotModified() {
+        return statusCode == NOT_MODIFIED;
+    }
+
+    /**
+     * The body was not read: it is not HTML or exceeds the configured size limit.
+     */
+    public boolean isSkipped() {
+        return document == null && !isNotModified();
+    }
+}
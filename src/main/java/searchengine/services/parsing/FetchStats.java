@@ -0,0 +1,10 @@
+package searchengine.services.parsing;
+
+import lombok.Value;
+
+@Value
+public class FetchStats {
+    int urls;
+    long fetches;
+    int refetchedUrls;
+}
@@ -0,0 +1,69 @@
+package searchengine.services.parsing;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pending fetches of a single host. The host owns {@code concurrency} slots; a slot is either
+ * waiting in the scheduler's ready queue, held by a running task, or parked here while nothing is pending.
+ */
+class HostQueue {
+    private final long delayNanos;
+    private final Queue<CrawlTask> pending = new ArrayDeque<>();
+    private int parkedSlots;
+
+    HostQueue(long delayMillis, int concurrency) {
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(delayMillis, 0));
+        this.parkedSlots = Math.max(concurrency, 1);
+    }
+
+    synchronized Slot offer(CrawlTask task) {
+        pending.add(task);
+        if (parkedSlots > 0) {
+            parkedSlots--;
+            return new Slot(System.nanoTime());
+        }
+        return null;
+    }
+
+    synchronized CrawlTask pollOrPark() {
+        CrawlTask task = pending.poll();
+        if (task == null) {
+            parkedSlots++;
+        }
+        return task;
+    }
+
+    synchronized void clear() {
+        pending.clear();
+    }
+
+    class Slot implements Delayed {
+        private long readyAt;
+
+        private Slot(long readyAt) {
+            this.readyAt = readyAt;
+        }
+
+        HostQueue getHostQueue() {
+            return HostQueue.this;
+        }
+
+        Slot release() {
+            readyAt = System.nanoTime() + delayNanos;
+            return this;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(readyAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package searchengine.services.parsing;
+
+import lombok.RequiredArgsConstructor;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import searchengine.properties.CrawlerSettings;
+import searchengine.repository.PageValidators;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "indexing-settings.crawler", name = "fetcher", havingValue = "jsoup",
+        matchIfMissing = true)
+public class JsoupPageFetcher implements PageFetcher {
+    private final CrawlerSettings settings;
+
+    @Override
+    public CompletableFuture<FetchResult> fetch(String url, PageValidators known) {
+        try {
+            Connection connection = Jsoup.connect(url)
+                    .ignoreHttpErrors(true)
+                    .ignoreContentType(true)
+                    .maxBodySize(settings.getMaxBodySize())
+                    .timeout(settings.getTimeout())
+                    .userAgent(settings.getUserAgent());
+            if (known != null && known.getEtag() != null) {
+                connection.header("If-None-Match", known.getEtag());
+            }
+            if (known != null && known.getLastModified() != null) {
+                connection.header("If-Modified-Since", known.getLastModified());
+            }
+            Connection.Response response = connection.execute();
+            String contentType = response.contentType();
+            Document document = null;
+            if (response.statusCode() != FetchResult.NOT_MODIFIED) {
+                if (PageFetcher.isHtml(contentType) && !exceedsLimit(response.header("Content-Length"))) {
+                    document = response.parse();
+                } else {
+                    response.bodyStream().close();
+                }
+            }
+            return CompletableFuture.completedFuture(new FetchResult(
+                    response.statusCode(),
+                    response.header("ETag"),
+                    response.header("Last-Modified"),
+                    contentType,
+                    document));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private boolean exceedsLimit(String contentLength) {
+        try {
+            return contentLength != null && Long.parseLong(contentLength.trim()) > settings.getMaxBodySize();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package searchengine.services.parsing;
+
+import java.io.ByteArrayOutputStream;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Collects a response body up to {@code limit} bytes, then cancels the subscription so the rest
+ * of an oversized body is never transferred. With a limit of zero nothing is read at all.
+ */
+class LimitedBodySubscriber implements HttpResponse.BodySubscriber<byte[]> {
+    private final int limit;
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+    private Flow.Subscription subscription;
+
+    LimitedBodySubscriber(int limit) {
+        this.limit = Math.max(limit, 0);
+    }
+
+    static HttpResponse.BodyHandler<byte[]> handler(int maxBodySize) {
+        return responseInfo -> {
+            String contentType = responseInfo.headers().firstValue("Content-Type").orElse(null);
+            long contentLength = responseInfo.headers().firstValueAsLong("Content-Length").orElse(-1);
+            boolean readable = responseInfo.statusCode() != FetchResult.NOT_MODIFIED
+                    && PageFetcher.isHtml(contentType)
+                    && contentLength <= maxBodySize;
+            return new LimitedBodySubscriber(readable ? maxBodySize : 0);
+        };
+    }
+
+    @Override
+    public CompletionStage<byte[]> getBody() {
+        return result;
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        if (limit == 0) {
+            subscription.cancel();
+            result.complete(null);
+        } else {
+            subscription.request(Long.MAX_VALUE);
+        }
+    }
+
+    @Override
+    public void onNext(List<ByteBuffer> buffers) {
+        if (result.isDone()) {
+            return;
+        }
+        for (ByteBuffer buffer : buffers) {
+            int length = Math.min(buffer.remaining(), limit - body.size());
+            byte[] chunk = new byte[length];
+            buffer.get(chunk);
+            body.write(chunk, 0, length);
+            if (body.size() >= limit) {
+                subscription.cancel();
+                result.complete(body.toByteArray());
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        result.completeExceptionally(throwable);
+    }
+
+    @Override
+    public void onComplete() {
+        result.complete(body.toByteArray());
+    }
+}
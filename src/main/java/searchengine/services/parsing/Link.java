@@ -7,4 +7,11 @@ public class Link {
     private String path;
     private int code;
     private String content;
+    private String title;
+    private String text;
+    private String etag;
+    private String lastModified;
+    private String contentHash;
+    private int pageId;
+    private boolean modified = true;
 }
@@ -0,0 +1,22 @@
+package searchengine.services.parsing;
+
+import searchengine.repository.PageValidators;
+
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+public interface PageFetcher {
+
+    CompletableFuture<FetchResult> fetch(String url, PageValidators known);
+
+    /**
+     * Whether a body with this Content-Type is worth parsing. A missing header is given the benefit of the doubt.
+     */
+    static boolean isHtml(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return true;
+        }
+        String mediaType = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+        return mediaType.equals("text/html") || mediaType.equals("application/xhtml+xml");
+    }
+}
@@ -6,105 +6,119 @@ import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import searchengine.model.SiteTable;
-import searchengine.model.Status;
-import searchengine.repository.PageRepository;
-import searchengine.repository.SiteRepository;
-
-import java.io.IOException;
-import java.time.LocalDateTime;
-import java.util.*;
-import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.RecursiveAction;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import searchengine.repository.PageValidators;
+import searchengine.services.indexing.PageContentStore;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Slf4j
-public class ParseHtml extends RecursiveAction {
+public class ParseHtml implements CrawlTask {
     private final String url;
+    private final PageFetcher fetcher;
+    private final CrawlFrontier frontier;
     private final SiteTable siteTable;
-    private final SiteRepository siteRepository;
-    private final PageRepository pageRepository;
-    private static final Set<Link> links = new CopyOnWriteArraySet<>();
-    private static final Set<String> pages = new CopyOnWriteArraySet<>();
-
-    public ParseHtml(String url, SiteTable siteTable, SiteRepository siteRepository, PageRepository pageRepository) {
+    private final PageContentStore contentStore;
+    private final SiteHeartbeat heartbeat;
+    private final Consumer<Link> sink;
+    private final BiConsumer<String, Throwable> failures;
+    private final boolean followLinks;
+
+    /**
+     * @param sink     receives every fetched page
+     * @param failures receives the URL and cause of every page that could not be fetched or parsed
+     */
+    public ParseHtml(String url, PageFetcher fetcher, CrawlFrontier frontier, SiteTable siteTable,
+                     PageContentStore contentStore, SiteHeartbeat heartbeat, Consumer<Link> sink,
+                     BiConsumer<String, Throwable> failures, boolean followLinks) {
         this.url = url;
+        this.fetcher = fetcher;
+        this.frontier = frontier;
         this.siteTable = siteTable;
-        this.siteRepository = siteRepository;
-        this.pageRepository = pageRepository;
+        this.contentStore = contentStore;
+        this.heartbeat = heartbeat;
+        this.sink = sink;
+        this.failures = failures;
+        this.followLinks = followLinks;
     }
 
     @Override
-    protected void compute() {
-        try {
-            Thread.sleep(300);
-            Document documentParent = connection(url);
-
-            Elements linkElements = documentParent.select("a[href]");
-            List<ParseHtml> subtasks = new CopyOnWriteArrayList<>();
-
-            for (Element element : linkElements) {
-                Link link = new Link();
-                String linkUrl = element.attr("abs:href");
-                if (linkUrl.startsWith(url)
-                        && !isFileLink(linkUrl)
-                        && !linkUrl.contains("#")
-                        && !pages.contains(linkUrl)
-                ) {
-                    log.info(linkUrl);
-
-                    Document documentChildren = connection(linkUrl);
-
-                    link.setPath(linkUrl);
-                    link.setContent(documentChildren.html());
-                    link.setCode(documentChildren.connection().response().statusCode());
-
-                    links.add(link);
-                    pages.add(linkUrl);
-
-                    setSiteTableStatusTime();
+    public CompletionStage<?> start() {
+        PageValidators known = frontier.takeKnownPage(url);
+        frontier.recordFetch(url);
+        return fetcher.fetch(url, known)
+                .thenAccept(result -> process(result, known))
+                .exceptionally(exception -> {
+                    Throwable cause = exception instanceof CompletionException && exception.getCause() != null
+                            ? exception.getCause()
+                            : exception;
+                    log.error(cause.getMessage());
+                    failures.accept(url, cause);
+                    return null;
+                });
+    }
 
-                    ParseHtml subtask = new ParseHtml(linkUrl, siteTable, siteRepository, pageRepository);
-                    subtasks.add(subtask);
-                }
+    private void process(FetchResult result, PageValidators known) {
+        if (result.isSkipped()) {
+            log.debug("Skipped {} ({})", url, result.getContentType());
+            return;
+        }
+        Link page = new Link();
+        page.setPath(url);
+        page.setCode(result.getStatusCode());
+        Document document;
+        if (known != null && result.isNotModified()) {
+            page.setPageId(known.getId());
+            page.setModified(false);
+            document = Jsoup.parse(contentStore.load(known.getId()), url);
+        } else if (result.getDocument() != null) {
+            document = result.getDocument();
+            page.setContent(document.html());
+            page.setTitle(TextExtractor.title(document));
+            page.setText(TextExtractor.text(document));
+            page.setEtag(result.getEtag());
+            page.setLastModified(result.getLastModified());
+            page.setContentHash(sha256(page.getTitle() + "\n" + page.getText()));
+            if (known != null) {
+                page.setPageId(known.getId());
+                page.setModified(!page.getContentHash().equals(known.getContentHash()));
             }
-            invokeAll(subtasks);
-        } catch (Exception exception) {
-            setSiteTableError(exception);
-            log.error(exception.getMessage());
+        } else {
+            throw new IllegalStateException("Пустой ответ сервера: " + url);
         }
-    }
-
-    public Set<Link> getLinks() {
-        return new HashSet<>(links);
-    }
+        sink.accept(page);
+        heartbeat.beat(siteTable, frontier);
 
-    private void setSiteTableStatusTime() {
-        siteTable.setStatusTime(LocalDateTime.now());
-        siteRepository.save(siteTable);
-    }
+        if (!followLinks) {
+            return;
+        }
 
-    private void setSiteTableError(Exception exception) {
-        siteTable.setLastError(exception.getMessage());
-        siteTable.setStatus(Status.FAILED);
-        siteRepository.save(siteTable);
-    }
+        Elements linkElements = document.select("a[href]");
 
-    private boolean isFileLink(String link) {
-        String filePattern = ".*\\.(?i)(jpg|jpeg|png|gif|pdf|doc|docx|xls|xlsx|zip)$";
-        Pattern pattern = Pattern.compile(filePattern);
-        Matcher matcher = pattern.matcher(link);
-        return matcher.matches();
+        for (Element element : linkElements) {
+            String linkUrl = UrlNormalizer.stripFragment(element.attr("abs:href"));
+            if (linkUrl.startsWith(url)
+                    && frontier.submit(linkUrl, new ParseHtml(linkUrl, fetcher, frontier, siteTable,
+                    contentStore, heartbeat, sink, failures, true))
+            ) {
+                log.info(linkUrl);
+            }
+        }
     }
 
-    private Document connection(String url) throws IOException {
-        return Jsoup.connect(url)
-                .ignoreHttpErrors(true)
-                .ignoreContentType(true)
-                .userAgent("Mozilla/5.0 (Windows NT 10.0; Win64; x64)" +
-                        "AppleWebKit/537.36 (HTML, like Gecko)" +
-                        "Chrome/58.0.3029.110 Safari/537.3")
-                .get();
+    private static String sha256(String content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(content.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
-}
\ No newline at end of file
+}
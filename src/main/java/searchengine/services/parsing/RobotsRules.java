@@ -0,0 +1,158 @@
+package searchengine.services.parsing;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Rules of the {@code User-agent: *} group of a robots.txt, parsed once per crawl.
+ * The longest matching {@code Allow}/{@code Disallow} pattern wins, {@code Allow} on a tie;
+ * {@code *} and a trailing {@code $} are supported.
+ */
+public class RobotsRules {
+    public static final RobotsRules ALLOW_ALL = new RobotsRules(List.of(), null, List.of());
+
+    private final List<Rule> rules;
+    private final Long crawlDelayMillis;
+    private final List<String> sitemaps;
+
+    private RobotsRules(List<Rule> rules, Long crawlDelayMillis, List<String> sitemaps) {
+        this.rules = rules;
+        this.crawlDelayMillis = crawlDelayMillis;
+        this.sitemaps = sitemaps;
+    }
+
+    public static RobotsRules parse(String text) {
+        List<Rule> rules = new ArrayList<>();
+        List<String> sitemaps = new ArrayList<>();
+        Long crawlDelay = null;
+        boolean inAgentLine = false;
+        boolean forAll = false;
+        for (String rawLine : text.split("\r\n|\r|\n")) {
+            int comment = rawLine.indexOf('#');
+            String line = (comment >= 0 ? rawLine.substring(0, comment) : rawLine).trim();
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String key = line.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = line.substring(colon + 1).trim();
+            if (key.equals("user-agent")) {
+                if (!inAgentLine) {
+                    forAll = false;
+                }
+                forAll |= value.equals("*");
+                inAgentLine = true;
+                continue;
+            }
+            inAgentLine = false;
+            switch (key) {
+                case "allow", "disallow" -> {
+                    if (forAll && !value.isEmpty()) {
+                        rules.add(new Rule(value, key.equals("allow")));
+                    }
+                }
+                case "crawl-delay" -> {
+                    if (forAll) {
+                        crawlDelay = parseDelay(value, crawlDelay);
+                    }
+                }
+                case "sitemap" -> {
+                    if (!value.isEmpty()) {
+                        sitemaps.add(value);
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        return new RobotsRules(rules, crawlDelay, Collections.unmodifiableList(sitemaps));
+    }
+
+    public boolean isAllowed(String url) {
+        if (rules.isEmpty()) {
+            return true;
+        }
+        String path = pathOf(url);
+        Rule best = null;
+        for (Rule rule : rules) {
+            if (rule.matches(path) && (best == null
+                    || rule.length() > best.length()
+                    || rule.length() == best.length() && rule.allow())) {
+                best = rule;
+            }
+        }
+        return best == null || best.allow();
+    }
+
+    public Long getCrawlDelayMillis() {
+        return crawlDelayMillis;
+    }
+
+    public List<String> getSitemaps() {
+        return sitemaps;
+    }
+
+    private static Long parseDelay(String value, Long fallback) {
+        try {
+            return Math.round(Double.parseDouble(value) * 1000);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    private static String pathOf(String url) {
+        try {
+            URI uri = URI.create(url);
+            String path = uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+            return uri.getRawQuery() == null ? path : path + "?" + uri.getRawQuery();
+        } catch (IllegalArgumentException e) {
+            int start = url.indexOf('/', url.indexOf("://") + 3);
+            return start < 0 ? "/" : url.substring(start);
+        }
+    }
+
+    private static final class Rule {
+        private final String value;
+        private final boolean allow;
+        private final Pattern pattern;
+
+        private Rule(String value, boolean allow) {
+            this.value = value;
+            this.allow = allow;
+            this.pattern = value.indexOf('*') >= 0 || value.endsWith("$") ? compile(value) : null;
+        }
+
+        boolean matches(String path) {
+            return pattern == null ? path.startsWith(value) : pattern.matcher(path).lookingAt();
+        }
+
+        int length() {
+            return value.length();
+        }
+
+        boolean allow() {
+            return allow;
+        }
+
+        private static Pattern compile(String value) {
+            boolean anchored = value.endsWith("$");
+            String body = anchored ? value.substring(0, value.length() - 1) : value;
+            StringBuilder regex = new StringBuilder();
+            String[] parts = body.split("\\*", -1);
+            for (int i = 0; i < parts.length; i++) {
+                if (i > 0) {
+                    regex.append(".*");
+                }
+                regex.append(Pattern.quote(parts[i]));
+            }
+            if (anchored) {
+                regex.append('$');
+            }
+            return Pattern.compile(regex.toString());
+        }
+    }
+}
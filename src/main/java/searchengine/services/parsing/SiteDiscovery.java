@@ -0,0 +1,135 @@
+package searchengine.services.parsing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.springframework.stereotype.Component;
+import searchengine.properties.CrawlerSettings;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads robots.txt and the sitemaps of a site once at crawl start. Parsed robots rules are cached per site,
+ * so single-page indexing does not fetch robots.txt again.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SiteDiscovery {
+    private static final int MAX_SITEMAP_FILES = 100;
+
+    private final CrawlerSettings settings;
+    private final Map<String, RobotsRules> robotsCache = new ConcurrentHashMap<>();
+
+    public RobotsRules loadRobots(String siteUrl) {
+        if (!settings.isRobots()) {
+            return RobotsRules.ALLOW_ALL;
+        }
+        RobotsRules rules = RobotsRules.ALLOW_ALL;
+        try {
+            byte[] body = download(siteUrl + "robots.txt", settings.getMaxBodySize());
+            if (body != null) {
+                rules = RobotsRules.parse(new String(body, StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            log.warn("robots.txt of {} is unavailable: {}", siteUrl, e.getMessage());
+        }
+        robotsCache.put(siteUrl, rules);
+        return rules;
+    }
+
+    public RobotsRules getRobots(String siteUrl) {
+        RobotsRules rules = robotsCache.get(siteUrl);
+        return rules != null ? rules : loadRobots(siteUrl);
+    }
+
+    /**
+     * Page URLs listed in the site's sitemaps (those named in robots.txt, otherwise {@code /sitemap.xml}),
+     * following sitemap indexes. Shallow pages come first, so seeding the frontier with them
+     * crawls the site breadth-first.
+     */
+    public List<String> loadSitemapUrls(String siteUrl, RobotsRules robots) {
+        if (!settings.isSitemap()) {
+            return List.of();
+        }
+        Deque<String> sitemaps = new ArrayDeque<>(robots.getSitemaps().isEmpty()
+                ? List.of(siteUrl + "sitemap.xml")
+                : robots.getSitemaps());
+        Set<String> seenSitemaps = new HashSet<>();
+        Set<String> urls = new LinkedHashSet<>();
+        while (!sitemaps.isEmpty() && seenSitemaps.size() < MAX_SITEMAP_FILES
+                && urls.size() < settings.getSitemapMaxUrls()) {
+            String sitemap = sitemaps.poll();
+            if (!seenSitemaps.add(sitemap)) {
+                continue;
+            }
+            try {
+                byte[] body = download(sitemap, settings.getSitemapMaxBodySize());
+                if (body == null) {
+                    continue;
+                }
+                String xml = new String(gunzip(body, settings.getSitemapMaxBodySize()), StandardCharsets.UTF_8);
+                Document document = Jsoup.parse(xml, sitemap, Parser.xmlParser());
+                for (Element loc : document.select("sitemap > loc")) {
+                    sitemaps.add(loc.text().trim());
+                }
+                for (Element loc : document.select("url > loc")) {
+                    String url = loc.text().trim();
+                    if (url.startsWith(siteUrl) && robots.isAllowed(url)
+                            && urls.size() < settings.getSitemapMaxUrls()) {
+                        urls.add(url);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Sitemap {} is unavailable: {}", sitemap, e.getMessage());
+            }
+        }
+        List<String> ordered = new ArrayList<>(urls);
+        ordered.sort(Comparator.comparingInt(SiteDiscovery::depth));
+        log.info("Sitemaps of {}: {} files, {} URLs", siteUrl, seenSitemaps.size(), ordered.size());
+        return ordered;
+    }
+
+    /**
+     * @return the body, cut to {@code maxBodySize} bytes, or {@code null} if the server did not answer 200
+     */
+    private byte[] download(String url, int maxBodySize) throws IOException {
+        Connection.Response response = Jsoup.connect(url)
+                .ignoreHttpErrors(true)
+                .ignoreContentType(true)
+                .maxBodySize(maxBodySize)
+                .timeout(settings.getTimeout())
+                .userAgent(settings.getUserAgent())
+                .execute();
+        return response.statusCode() == 200 ? response.bodyAsBytes() : null;
+    }
+
+    private static byte[] gunzip(byte[] body, int maxSize) throws IOException {
+        if (body.length < 2 || (body[0] & 0xff) != 0x1f || (body[1] & 0xff) != 0x8b) {
+            return body;
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return maxSize > 0 ? in.readNBytes(maxSize) : in.readAllBytes();
+        }
+    }
+
+    private static int depth(String url) {
+        int depth = 0;
+        for (int i = url.indexOf("://") + 3; i < url.length() - 1; i++) {
+            if (url.charAt(i) == '/') {
+                depth++;
+            }
+        }
+        return depth;
+    }
+}
@@ -0,0 +1,59 @@
+package searchengine.services.parsing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import searchengine.model.SiteTable;
+import searchengine.properties.CrawlerSettings;
+import searchengine.repository.SiteRepository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps {@code site.status_time} and the crawl progress counters current without writing the site row
+ * for every page: at most one targeted UPDATE per site per {@code heartbeat-interval}, issued by whichever
+ * crawler thread notices the interval has passed.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SiteHeartbeat {
+    private final SiteRepository siteRepository;
+    private final CrawlerSettings settings;
+    private final Map<Integer, AtomicLong> lastWrites = new ConcurrentHashMap<>();
+
+    public void beat(SiteTable siteTable, CrawlFrontier frontier) {
+        AtomicLong lastWrite = lastWrites.computeIfAbsent(siteTable.getId(), id -> new AtomicLong());
+        long now = System.currentTimeMillis();
+        long previous = lastWrite.get();
+        if (now - previous < settings.getHeartbeatInterval() || !lastWrite.compareAndSet(previous, now)) {
+            return;
+        }
+        write(siteTable, frontier);
+    }
+
+    /**
+     * Writes the current progress regardless of the interval, e.g. when the crawl of the site ends.
+     */
+    public void flush(SiteTable siteTable, CrawlFrontier frontier) {
+        lastWrites.remove(siteTable.getId());
+        write(siteTable, frontier);
+    }
+
+    private void write(SiteTable siteTable, CrawlFrontier frontier) {
+        LocalDateTime now = LocalDateTime.now();
+        int fetchedPages = (int) Math.min(frontier.getFetchStats().getFetches(), Integer.MAX_VALUE);
+        int queuedUrls = frontier.getVisitedCount();
+        siteTable.setStatusTime(now);
+        siteTable.setFetchedPages(fetchedPages);
+        siteTable.setQueuedUrls(queuedUrls);
+        try {
+            siteRepository.updateProgress(siteTable.getId(), now, fetchedPages, queuedUrls);
+        } catch (Exception exception) {
+            log.warn("Heartbeat of {} failed: {}", siteTable.getUrl(), exception.getMessage());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package searchengine.services.parsing;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+/**
+ * Plain text and title of a page, extracted once when the page is stored. Lemmatization, snippets and
+ * titles in search results all work off this text, so neither the indexer nor a query has to parse HTML again.
+ */
+public final class TextExtractor {
+    private static final int MAX_TITLE_LENGTH = 512;
+
+    private TextExtractor() {
+    }
+
+    public static String title(Document document) {
+        String title = document.title().trim();
+        return title.length() > MAX_TITLE_LENGTH ? title.substring(0, MAX_TITLE_LENGTH) : title;
+    }
+
+    public static String text(Document document) {
+        return document.body() != null ? document.body().text() : document.text();
+    }
+
+    public static Document parse(String html) {
+        return Jsoup.parse(html == null ? "" : html);
+    }
+}
@@ -0,0 +1,68 @@
+package searchengine.services.parsing;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Canonical form of a URL used as the dedup key: lower-case scheme and host, no default port,
+ * no fragment, no trailing slash except for the root, and query parameters sorted by name.
+ */
+public final class UrlNormalizer {
+
+    private UrlNormalizer() {
+    }
+
+    public static String normalize(String url) {
+        URI uri;
+        try {
+            uri = new URI(url.trim()).normalize();
+        } catch (URISyntaxException e) {
+            return url.trim();
+        }
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            return url.trim();
+        }
+
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        StringBuilder builder = new StringBuilder(url.length());
+        builder.append(scheme).append("://").append(uri.getHost().toLowerCase(Locale.ROOT));
+        if (uri.getPort() != -1 && !isDefaultPort(scheme, uri.getPort())) {
+            builder.append(':').append(uri.getPort());
+        }
+
+        String path = uri.getRawPath();
+        if (path == null || path.isEmpty()) {
+            path = "/";
+        }
+        while (path.length() > 1 && path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        builder.append(path);
+
+        String query = uri.getRawQuery();
+        if (query != null && !query.isEmpty()) {
+            String[] params = Arrays.stream(query.split("&"))
+                    .filter(param -> !param.isEmpty())
+                    .sorted()
+                    .toArray(String[]::new);
+            if (params.length > 0) {
+                builder.append('?').append(String.join("&", params));
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The URL without its {@code #fragment}, which names a place on the page and never a different page.
+     */
+    public static String stripFragment(String url) {
+        int hash = url.indexOf('#');
+        return hash < 0 ? url : url.substring(0, hash);
+    }
+
+    private static boolean isDefaultPort(String scheme, int port) {
+        return ("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443);
+    }
+}
@@ -0,0 +1,55 @@
+package searchengine.services.parsing;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * URLs already queued during one crawl of one site, keyed by their normalized form,
+ * together with how many times each of them was actually fetched.
+ */
+@Slf4j
+public class VisitedUrls {
+    private final Map<String, AtomicInteger> urls = new ConcurrentHashMap<>();
+
+    public boolean add(String url) {
+        return urls.putIfAbsent(UrlNormalizer.normalize(url), new AtomicInteger()) == null;
+    }
+
+    public int size() {
+        return urls.size();
+    }
+
+    public List<String> snapshot() {
+        return new ArrayList<>(urls.keySet());
+    }
+
+    public void recordFetch(String url) {
+        int fetches = urls.computeIfAbsent(UrlNormalizer.normalize(url), key -> new AtomicInteger())
+                .incrementAndGet();
+        if (fetches > 1) {
+            log.warn("URL fetched {} times during one crawl: {}", fetches, url);
+        }
+    }
+
+    public int getFetchCount(String url) {
+        AtomicInteger fetches = urls.get(UrlNormalizer.normalize(url));
+        return fetches == null ? 0 : fetches.get();
+    }
+
+    public FetchStats getStats() {
+        long fetches = 0;
+        int refetched = 0;
+        for (AtomicInteger count : urls.values()) {
+            fetches += count.get();
+            if (count.get() > 1) {
+                refetched++;
+            }
+        }
+        return new FetchStats(urls.size(), fetches, refetched);
+    }
+}
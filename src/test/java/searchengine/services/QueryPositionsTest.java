@@ -0,0 +1,116 @@
+package searchengine.services;
+
+import org.junit.jupiter.api.Test;
+import searchengine.services.QueryPositions.QueryTerm;
+import searchengine.services.morphology.LemmaFinder;
+
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryPositionsTest {
+
+    private static final int MAX_DISTANCE = 5;
+
+    private final LemmaFinder words = new WordsAsLemmas();
+
+    @Test
+    void keepsSearchedWordsAtTheirQueryOffsets() {
+        List<QueryTerm> terms = QueryPositions.queryTerms("a \"x b\" a", Set.of("a", "b"), words);
+
+        assertEquals(List.of(
+                new QueryTerm(0, Set.of("a")),
+                new QueryTerm(2, Set.of("b")),
+                new QueryTerm(3, Set.of("a"))), terms);
+    }
+
+    @Test
+    void checksTheGapOfEachNeighbouringPair() {
+        QueryPositions query = new QueryPositions("a b c", Set.of("a", "b", "c"), words);
+
+        assertTrue(query.matches(positions("a", 0, "b", 5, "c", 10), MAX_DISTANCE));
+        assertTrue(query.matches(positions("a", 5, "b", 0, "c", 3), MAX_DISTANCE));
+        assertFalse(query.matches(positions("a", 0, "b", 5, "c", 11), MAX_DISTANCE));
+        assertFalse(query.matches(positions("a", 0, "b", 6, "c", 1), MAX_DISTANCE));
+    }
+
+    @Test
+    void findsThePhraseAtItsWordOffsets() {
+        QueryPositions query = new QueryPositions("\"a b\" c", Set.of("a", "b", "c"), words);
+
+        assertTrue(query.matches(positions("a", 3, "b", 4, "c", 6), MAX_DISTANCE));
+        assertFalse(query.matches(positions("a", 3, "b", 5, "c", 6), MAX_DISTANCE));
+        assertFalse(query.matches(positions("a", 4, "b", 3, "c", 6), MAX_DISTANCE));
+    }
+
+    @Test
+    void skipsADroppedFrequentLemma() {
+        QueryPositions query = new QueryPositions("\"a x b\"", Set.of("a", "b"), words);
+
+        assertTrue(query.matches(positions("a", 3, "b", 5), MAX_DISTANCE));
+        assertFalse(query.matches(positions("a", 3, "b", 4), MAX_DISTANCE));
+    }
+
+    @Test
+    void checksEachSiteAgainstItsOwnTerms() {
+        QueryPositions allLemmas = new QueryPositions("a b", Set.of("a", "b"), words);
+        QueryPositions bDropped = new QueryPositions("a b", Set.of("a"), words);
+
+        Map<String, int[]> page = positions("a", 0);
+
+        assertFalse(allLemmas.matches(page, MAX_DISTANCE));
+        assertTrue(bDropped.matches(page, MAX_DISTANCE));
+        assertFalse(allLemmas.matches(positions("a", 0, "b", 20), MAX_DISTANCE));
+    }
+
+    @Test
+    void keepsPagesWithoutStoredPositions() {
+        QueryPositions query = new QueryPositions("\"a b\"", Set.of("a", "b"), words);
+        Map<String, int[]> page = new HashMap<>();
+        page.put("a", null);
+        page.put("b", null);
+
+        assertTrue(query.matches(page, MAX_DISTANCE));
+    }
+
+    private static Map<String, int[]> positions(Object... lemmaAndPosition) {
+        Map<String, int[]> positions = new HashMap<>();
+        for (int i = 0; i < lemmaAndPosition.length; i += 2) {
+            positions.put((String) lemmaAndPosition[i], new int[]{(Integer) lemmaAndPosition[i + 1]});
+        }
+        return positions;
+    }
+
+    /**
+     * Every lower-cased word is its own lemma; punctuation and quotes only separate words.
+     */
+    private static class WordsAsLemmas implements LemmaFinder {
+
+        @Override
+        public void forEachLemma(String text, ObjIntConsumer<String> consumer) {
+            String[] words = text.replaceAll("[^\\p{L}]+", " ").trim().split(" +");
+            for (int i = 0; i < words.length; i++) {
+                consumer.accept(words[i].toLowerCase(Locale.ROOT), i);
+            }
+        }
+
+        @Override
+        public Map<String, List<Integer>> collectLemmaPositions(String text) {
+            Map<String, List<Integer>> positions = new HashMap<>();
+            forEachLemma(text, (lemma, position) -> positions.computeIfAbsent(lemma, key -> new ArrayList<>())
+                    .add(position));
+            return positions;
+        }
+
+        @Override
+        public HashMap<String, Integer> collectLemmas(String text) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<String> getLemma(String word) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
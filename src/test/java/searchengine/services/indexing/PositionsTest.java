@@ -0,0 +1,41 @@
+package searchengine.services.indexing;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PositionsTest {
+
+    @Test
+    void decodesDeltaEncodedPositions() {
+        int[] positions = {0, 1, 127, 128, 16_511, 16_512, 2_113_663, Integer.MAX_VALUE};
+
+        assertArrayEquals(positions, Positions.decode(encode(positions)));
+    }
+
+    @Test
+    void decodesMissingPositionsAsNull() {
+        assertNull(Positions.decode(null));
+        assertArrayEquals(new int[0], Positions.decode(new byte[0]));
+    }
+
+    @Test
+    void containsPosition() {
+        int[] positions = {2, 5, 40};
+
+        assertTrue(Positions.contains(positions, 5));
+        assertFalse(Positions.contains(positions, 6));
+    }
+
+    private static byte[] encode(int[] positions) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int previous = 0;
+        for (int position : positions) {
+            Varint.write(out, position - previous);
+            previous = position;
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,107 @@
+package searchengine.services.indexing;
+
+import org.junit.jupiter.api.Test;
+import searchengine.services.morphology.LemmaFinder;
+
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostingBufferTest {
+    private final LemmaFinder words = new WordsAsLemmas();
+
+    @Test
+    void buffersOnePostingPerLemmaWithPositions() {
+        PostingBuffer postings = new PostingBuffer();
+
+        assertEquals(3, postings.addPage(7, "a b a c", words));
+
+        assertEquals(3, postings.size());
+        assertEquals(1, postings.getPages());
+        assertPosting(postings, 0, 7, 2, 0, 2);
+        assertPosting(postings, 1, 7, 1, 1);
+        assertPosting(postings, 2, 7, 1, 3);
+    }
+
+    @Test
+    void encodesLargePositions() {
+        String text = "x ".repeat(20_000) + "y";
+        PostingBuffer postings = new PostingBuffer();
+
+        postings.addPage(1, text, words);
+
+        int[] positions = Positions.decode(postings.getPositions(0));
+        assertEquals(20_000, positions.length);
+        assertEquals(19_999, positions[positions.length - 1]);
+        assertPosting(postings, 1, 1, 1, 20_000);
+    }
+
+    @Test
+    void resolvesLemmaIdsAndKeepsThemAfterClear() {
+        PostingBuffer postings = new PostingBuffer();
+        postings.addPage(1, "a b", words);
+        postings.addPage(2, "a c c", words);
+
+        Map<Integer, Integer> increments = new HashMap<>();
+        Map<String, Integer> unknown = postings.collectFrequencies(lemma -> lemma.equals("a") ? 5 : 0, increments);
+        postings.resolve(Map.of("b", 11, "c", 12));
+
+        assertEquals(Map.of(5, 2), increments);
+        assertEquals(Map.of("b", 1, "c", 1), unknown);
+        assertEquals(Set.of(5, 11, 12), postings.getLemmaIds());
+        assertEquals(List.of(5, 11, 5, 12), lemmaIds(postings));
+
+        postings.clear();
+        postings.addPage(3, "c", words);
+        increments.clear();
+
+        assertEquals(Map.of(), postings.collectFrequencies(lemma -> 0, increments));
+        assertEquals(Map.of(12, 1), increments);
+        assertEquals(List.of(12), lemmaIds(postings));
+    }
+
+    private static void assertPosting(PostingBuffer postings, int index, int pageId, int frequency,
+                                      int... positions) {
+        assertEquals(pageId, postings.getPageId(index));
+        assertEquals(frequency, postings.getFrequency(index));
+        assertArrayEquals(positions, Positions.decode(postings.getPositions(index)));
+    }
+
+    private static List<Integer> lemmaIds(PostingBuffer postings) {
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < postings.size(); i++) {
+            ids.add(postings.getLemmaId(i));
+        }
+        return ids;
+    }
+
+    /**
+     * Every space-separated word is its own lemma.
+     */
+    private static class WordsAsLemmas implements LemmaFinder {
+
+        @Override
+        public void forEachLemma(String text, ObjIntConsumer<String> consumer) {
+            String[] words = text.trim().split(" +");
+            for (int i = 0; i < words.length; i++) {
+                consumer.accept(words[i], i);
+            }
+        }
+
+        @Override
+        public HashMap<String, Integer> collectLemmas(String text) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<String, List<Integer>> collectLemmaPositions(String text) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<String> getLemma(String word) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
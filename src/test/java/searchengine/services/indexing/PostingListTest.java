@@ -0,0 +1,46 @@
+package searchengine.services.indexing;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostingListTest {
+
+    @Test
+    void decodesWhatItEncodes() {
+        byte[] positions = {0, 5, (byte) 0x80, 0x01};
+        PostingList postings = new PostingList.Builder()
+                .add(3, 2, positions)
+                .add(130, 1, null)
+                .add(20_000_000, 7, new byte[0])
+                .build();
+
+        PostingList decoded = PostingList.decode(postings.encode());
+
+        assertArrayEquals(new int[]{3, 130, 20_000_000}, decoded.getPageIds());
+        assertEquals(2, decoded.getFrequency(0));
+        assertEquals(1, decoded.getFrequency(1));
+        assertEquals(7, decoded.getFrequency(2));
+        assertArrayEquals(positions, decoded.getPositions(0));
+        assertNull(decoded.getPositions(1));
+        assertArrayEquals(new byte[0], decoded.getPositions(2));
+    }
+
+    @Test
+    void decodesEmptyList() {
+        PostingList decoded = PostingList.decode(new PostingList.Builder().build().encode());
+
+        assertEquals(0, decoded.size());
+    }
+
+    @Test
+    void findsPostingByPageId() {
+        PostingList postings = new PostingList.Builder()
+                .add(4, 1, null)
+                .add(9, 1, null)
+                .build();
+
+        assertEquals(1, postings.indexOf(9));
+        assertTrue(postings.indexOf(5) < 0);
+    }
+}
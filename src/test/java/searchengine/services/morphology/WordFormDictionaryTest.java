@@ -0,0 +1,80 @@
+package searchengine.services.morphology;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WordFormDictionaryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void findsWrittenFormsWithTheirLemmas() throws IOException {
+        WordFormDictionary dictionary = writeAndOpen(Map.of(
+                "стали", List.of("сталь", "стать"),
+                "сталь", List.of("сталь"),
+                "и", List.of(),
+                "cats", List.of("cat")));
+
+        assertEquals(3, dictionary.getLemmaCount());
+        assertLemmas(dictionary, "стали", "сталь", "стать");
+        assertLemmas(dictionary, "сталь", "сталь");
+        assertLemmas(dictionary, "cats", "cat");
+        assertLemmas(dictionary, "и");
+    }
+
+    @Test
+    void missesFormsItWasNotCompiledFrom() throws IOException {
+        WordFormDictionary dictionary = writeAndOpen(Map.of("дом", List.of("дом")));
+
+        assertEquals(-1, find(dictionary, "дома"));
+        assertEquals(-1, find(dictionary, "до"));
+    }
+
+    @Test
+    void opensEmptyDictionary() throws IOException {
+        WordFormDictionary dictionary = writeAndOpen(Map.of());
+
+        assertEquals(0, dictionary.getLemmaCount());
+        assertEquals(-1, find(dictionary, "дом"));
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("other.dict");
+        Files.write(file, new byte[64]);
+
+        assertThrows(IllegalArgumentException.class, () -> WordFormDictionary.open(file));
+    }
+
+    private WordFormDictionary writeAndOpen(Map<String, List<String>> forms) throws IOException {
+        Path file = directory.resolve("word-forms.dict");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            WordFormDictionary.write(forms, out);
+        }
+        return WordFormDictionary.open(file);
+    }
+
+    private static int find(WordFormDictionary dictionary, String word) {
+        char[] buffer = (word + "   ").toCharArray();
+        return dictionary.find(buffer, word.length());
+    }
+
+    private static void assertLemmas(WordFormDictionary dictionary, String word, String... lemmas) {
+        int entry = find(dictionary, word);
+        assertTrue(entry >= 0, word);
+        assertEquals(lemmas.length, dictionary.getLemmaCount(entry));
+        for (int i = 0; i < lemmas.length; i++) {
+            assertEquals(lemmas[i], dictionary.getLemma(entry, i));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package searchengine.services.morphology;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Build step for {@link WordFormDictionary}, run by the {@code word-forms} profile:
+ * {@code mvn -Pword-forms process-test-classes -Dword-forms.input=<text files or directories>}.
+ * Every distinct word of the input texts (exported page text of the indexed sites, word lists) is resolved once
+ * through the Lucene morphologies and written with its lemmas, none for service words, to
+ * {@code target/word-forms.dict}, which is then set as {@code indexing-settings.morphology.dictionary}.
+ */
+public class WordFormDictionaryCompiler {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            throw new IllegalArgumentException(
+                    "Usage: WordFormDictionaryCompiler <output> <text files or directories...>");
+        }
+        Map<String, List<String>> forms = new HashMap<>();
+        int words = 0;
+        for (Path file : textFiles(args)) {
+            String text = Files.readString(file, StandardCharsets.UTF_8);
+            int[] count = {0};
+            Tokenizer.tokenize(text, (buffer, length, position) -> {
+                count[0]++;
+                forms.computeIfAbsent(new String(buffer, 0, length), LuceneLemmatizer::lemmas);
+            });
+            words += count[0];
+        }
+        if (!forms.isEmpty() && forms.values().stream().allMatch(List::isEmpty)) {
+            throw new IllegalStateException("No word form got a lemma: the Lucene morphologies are not available");
+        }
+        Path output = Path.of(args[0]);
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+            WordFormDictionary.write(forms, out);
+        }
+        WordFormDictionary dictionary = WordFormDictionary.open(output);
+        System.out.printf("%d words read, %d forms and %d lemmas written to %s (%d bytes)%n",
+                words, forms.size(), dictionary.getLemmaCount(), output, Files.size(output));
+    }
+
+    private static List<Path> textFiles(String[] args) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            Path path = Path.of(args[i]);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(Files::isRegularFile).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(path);
+            }
+        }
+        return files;
+    }
+}